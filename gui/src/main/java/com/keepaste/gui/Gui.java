@@ -49,6 +49,8 @@ public class Gui extends javax.swing.JFrame {
         labelTargetWindowTitle.setFont(new java.awt.Font("Helvetica Neue", 0, 11)); // NOI18N
         labelTargetWindowTitle.setText("Click on any window...");
 
+        textSearch.setToolTipText("Search Keeps by title, phrase, description or parameter name");
+
         javax.swing.tree.DefaultMutableTreeNode treeNode1 = new javax.swing.tree.DefaultMutableTreeNode("Keeps");
         tree.setModel(new javax.swing.tree.DefaultTreeModel(treeNode1));
         treeScrollPane.setViewportView(tree);
@@ -76,6 +78,7 @@ public class Gui extends javax.swing.JFrame {
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+            .addComponent(textSearch)
             .addComponent(treeScrollPane)
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
@@ -88,6 +91,8 @@ public class Gui extends javax.swing.JFrame {
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
+                .addComponent(textSearch, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addGap(0, 0, 0)
                 .addComponent(treeScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 310, Short.MAX_VALUE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(labelBackground)
@@ -144,6 +149,7 @@ public class Gui extends javax.swing.JFrame {
     public final javax.swing.JMenu menuItemAbout = new javax.swing.JMenu();
     public final javax.swing.JMenu menuItemHeart = new javax.swing.JMenu();
     public final javax.swing.JMenu menuItemMain = new javax.swing.JMenu();
+    public final javax.swing.JTextField textSearch = new javax.swing.JTextField();
     public final javax.swing.JTree tree = new javax.swing.JTree();
     public final javax.swing.JScrollPane treeScrollPane = new javax.swing.JScrollPane();
     // End of variables declaration//GEN-END:variables
@@ -27,6 +27,7 @@ import com.keepaste.logic.controllers.ControllerLookAndFeel;
 import com.keepaste.logic.controllers.ControllerTopMenu;
 import com.keepaste.logic.controllers.ControllerTree;
 import com.keepaste.logic.managers.KeepExecutionManager;
+import com.keepaste.logic.managers.KeepasteFilesWatcher;
 import com.keepaste.logic.managers.KeepsManager;
 import com.keepaste.logic.managers.SettingsManager;
 import com.keepaste.logic.managers.window.WindowManager;
@@ -35,11 +36,15 @@ import com.keepaste.logic.managers.window.WindowsWindowsManager;
 import com.keepaste.logic.models.ModelActiveWindow;
 import com.keepaste.logic.models.ModelSettings;
 import com.keepaste.logic.models.ModelTree;
+import com.keepaste.logic.utils.FileSystemUtils;
 import com.keepaste.logic.utils.GuiUtils;
 import com.keepaste.logic.utils.ImagesUtils;
 import com.keepaste.logic.utils.OperatingSystemUtils;
 import com.keepaste.logic.utils.WebUtils;
 import com.keepaste.logic.views.ViewActiveWindow;
+import com.keepaste.logic.views.ViewKeepExecution;
+import com.keepaste.logic.views.ViewKeepsSearch;
+import com.keepaste.logic.views.ViewQuickLaunch;
 import com.keepaste.logic.views.ViewLookAndFeel;
 import com.keepaste.logic.views.ViewTopMenu;
 import com.keepaste.logic.views.ViewTree;
@@ -49,6 +54,7 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
 
 import com.keepaste.gui.Gui;
 import lombok.extern.log4j.Log4j2;
@@ -116,13 +122,29 @@ public final class Application {
                 // Top menu bar
                 ViewTopMenu viewTopMenu = new ViewTopMenu(gui.menuItemMain, gui.menuItemAbout, gui.menuItemHeart);
                 viewTopMenu.initUpperMenuBar();
+                context.getModelSettings().registerObserver(viewTopMenu);
                 new ControllerTopMenu(context.getModelActiveWindow(), viewActiveWindow, viewTopMenu.getLockingMenuItem());
 
+                // aborting a running keep
+                new ViewKeepExecution(gui);
+
                 // Tree
                 ViewTree viewTree = new ViewTree();
                 ModelTree modelTree = new ModelTree();
                 new ControllerTree(modelTree, viewTree);
 
+                // searching the Keeps
+                new ViewKeepsSearch(gui, viewTree);
+
+                // running the most frecent Keeps
+                new ViewQuickLaunch(gui);
+
+                // applying the keeps and settings files once they are changed by anyone else
+                new KeepasteFilesWatcher(Paths.get(FileSystemUtils.getKeepasteDirectory()))
+                        .onChange("keeps.json", viewTree::reloadKeepsIfChangedExternally)
+                        .onChange("settings.json", () -> SettingsManager.applySettingsFromFile(context.getModelSettings()))
+                        .start();
+
                 // look and feel (theme) controller
                 ViewLookAndFeel viewLookAndFeel = new ViewLookAndFeel(viewTree);
                 new ControllerLookAndFeel(context.getModelSettings(), viewLookAndFeel);
@@ -170,12 +192,15 @@ public final class Application {
     }
 
     private static Context generateContext(ModelSettings modelSettings) {
+        KeepExecutionManager keepExecutionManager = new KeepExecutionManager();
+        // loading the global parameters values kept from previous runs
+        keepExecutionManager.getGlobalParameterStore().setPersistent(modelSettings.isRememberGlobalParameters());
         return new Context(
                 new Gui(),
                 getWindowManager(),
                 modelSettings,
                 new KeepsManager(),
-                new KeepExecutionManager(),
+                keepExecutionManager,
                 new ModelActiveWindow());
     }
 
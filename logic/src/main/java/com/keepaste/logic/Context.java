@@ -14,6 +14,11 @@ import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.SystemUtils;
 
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowFocusListener;
 import java.util.Properties;
 
 /**
@@ -28,6 +33,7 @@ public class Context {
     @Getter
     private final ModelSettings modelSettings;
     private Thread windowInterceptorThread;
+    private volatile WindowInterceptorRunner windowInterceptorRunner;
     @Getter
     private final WindowManager windowManager;
     @Getter
@@ -65,6 +71,7 @@ public class Context {
         this.keepExecutionManager = keepExecutionManager;
 
         initProperties();
+        initWindowFocusSampling();
 
         log.info("Application started");
         log.info("Operating system: ".concat(OperatingSystemUtils.getOperatingSystemType().name()));
@@ -88,12 +95,16 @@ public class Context {
 
 
     /**
-     * Will start intercepting windows constantly.
+     * Will start intercepting windows, either constantly or around the focus transitions of the Keepaste window,
+     * based on the settings.
      */
-    public void startWindowInterceptorRunner() {
+    public synchronized void startWindowInterceptorRunner() {
         if (modelSettings.isFocusOnWindowAndPaste()) {
             log.info("Starting window interceptor");
-            Runnable windowInterceptorRunner = new WindowInterceptorRunner(windowManager, modelActiveWindow, INTERCEPT_INTERVAL_IN_MS);
+            WindowInterceptorRunner.Mode mode = modelSettings.isInterceptWindowsOnFocusChange()
+                    ? WindowInterceptorRunner.Mode.FOCUS_EVENTS
+                    : WindowInterceptorRunner.Mode.POLLING;
+            windowInterceptorRunner = new WindowInterceptorRunner(windowManager, modelActiveWindow, INTERCEPT_INTERVAL_IN_MS, mode);
             windowInterceptorThread = new Thread(windowInterceptorRunner);
             windowInterceptorThread.setDaemon(true);
             windowInterceptorThread.start();
@@ -103,13 +114,57 @@ public class Context {
     /**
      * Will stop the window interceptor.
      */
-    public void stopWindowInterceptorRunner() {
+    public synchronized void stopWindowInterceptorRunner() {
         log.info("Stopping window interceptor");
+        windowInterceptorRunner = null;
         if (windowInterceptorThread != null) {
             windowInterceptorThread.stop(); // interrupt doesn't stop the thread immediately, check that
         }
     }
 
+    /**
+     * Will restart the window interceptor, in case it is running, so a change of the way it intercepts takes effect.
+     */
+    public synchronized void restartWindowInterceptorRunner() {
+        if (windowInterceptorRunner != null) {
+            stopWindowInterceptorRunner();
+            startWindowInterceptorRunner();
+        }
+    }
+
+
+    /**
+     * Will sample the active window around the focus transitions of the Keepaste window, for when it is not sampled
+     * constantly (a runner sampling constantly ignores these).
+     * The window the user moves to from Keepaste is sampled once Keepaste loses focus, and the window the user moves to
+     * Keepaste from is sampled once the mouse enters the unfocused Keepaste window, right before it is clicked.
+     */
+    private void initWindowFocusSampling() {
+        gui.addWindowFocusListener(new WindowFocusListener() {
+            @Override
+            public void windowGainedFocus(WindowEvent e) {
+                WindowInterceptorRunner runner = windowInterceptorRunner;
+                if (runner != null) {
+                    runner.sampleOnce();
+                }
+            }
+
+            @Override
+            public void windowLostFocus(WindowEvent e) {
+                WindowInterceptorRunner runner = windowInterceptorRunner;
+                if (runner != null) {
+                    runner.sampleBurst();
+                }
+            }
+        });
+        Toolkit.getDefaultToolkit().addAWTEventListener(event -> {
+            WindowInterceptorRunner runner = windowInterceptorRunner;
+            if (runner != null && event.getID() == MouseEvent.MOUSE_ENTERED && !gui.isFocused()
+                    && (event.getSource() == gui || SwingUtilities.getWindowAncestor((Component) event.getSource()) == gui)) {
+                runner.sampleBurst();
+            }
+        }, AWTEvent.MOUSE_EVENT_MASK);
+    }
 
     private void initProperties() {
         try {
@@ -5,6 +5,7 @@ import com.keepaste.logic.Application;
 import com.keepaste.logic.models.Keep;
 import com.keepaste.logic.models.KeepParameter;
 import com.keepaste.logic.models.KeepsGroup;
+import com.keepaste.logic.models.PhraseTemplate;
 import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
 
@@ -12,6 +13,9 @@ import javax.swing.*;
 import javax.swing.table.TableCellEditor;
 import java.awt.event.ActionEvent;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class OkButtonActionListener extends BaseDialogKeepActionListener {
     private final List<KeepParameter> editedParameters;
@@ -56,38 +60,38 @@ public class OkButtonActionListener extends BaseDialogKeepActionListener {
         keep.setNeverPressEnter(dialogKeep.checkNeverPressEnter.isSelected());
         keep.setParameters(editedParameters);
 
-        KeepsGroup rootNode = Application.getContext().getKeepsManager().getRootNode();
-        Application.getContext().getKeepsManager().saveKeeps(rootNode);
+        // a new keep is persisted once it is added to the tree
+        Application.getContext().getKeepsManager().keepUpdated(keep);
 
         dialogKeep.setVisible(false);
     }
 
     private boolean notAllParamsOfParamsProvided() {
+        Set<String> parametersNames = getEditedParametersNames();
         for (KeepParameter parameter : editedParameters) {
-            String parameterPhrase = parameter.getPhrase();
-            for (KeepParameter otherParameters : editedParameters) {
-                if (otherParameters == parameter) {
-                    // validating that a keep parameter doesn't reference itself
-                    if (paramReferencesItself(parameter, parameterPhrase)) return true;
-                } else {
-                    parameterPhrase = parameterPhrase.replace(String.format("<%s>", otherParameters.getName()), "");
-                }
-            }
-            int startIndex = parameterPhrase.indexOf("<");
-            int endIndex = parameterPhrase.indexOf(">", startIndex);
-            if (startIndex > 0 && endIndex > 0) {
-                String missingParamName = parameterPhrase.substring(startIndex + 1, endIndex);
+            PhraseTemplate parameterTemplate = parameter.getPhraseTemplate();
+            // validating that a keep parameter doesn't reference itself
+            if (paramReferencesItself(parameter, parameterTemplate)) return true;
+
+            Optional<String> missingParamName = parameterTemplate.getParameterNames().stream()
+                    .filter(name -> !parametersNames.contains(name))
+                    .findFirst();
+            if (missingParamName.isPresent()) {
                 JOptionPane.showMessageDialog(Application.getContext().getGui(),
                         String.format("Given parameters does not cover all used parameters (on keep or its parameters),"
-                                + " please add the following missing parameter - %s", missingParamName));
+                                + " please add the following missing parameter - %s", missingParamName.get()));
                 return true;
             }
         }
         return false;
     }
 
-    private static boolean paramReferencesItself(KeepParameter parameter, String parameterPhrase) {
-        if (parameterPhrase.contains(String.format("<%s>", parameter.getName()))) {
+    private Set<String> getEditedParametersNames() {
+        return editedParameters.stream().map(KeepParameter::getName).collect(Collectors.toSet());
+    }
+
+    private static boolean paramReferencesItself(KeepParameter parameter, PhraseTemplate parameterTemplate) {
+        if (parameterTemplate.refersTo(parameter.getName())) {
             JOptionPane.showMessageDialog(Application.getContext().getGui(),
                     String.format("The parameter %s cannot use its own name as a command parameter.", parameter.getName()));
             return true;
@@ -96,11 +100,8 @@ public class OkButtonActionListener extends BaseDialogKeepActionListener {
     }
 
     private boolean notAllParamsOfCommandProvided() {
-        String commandStr = dialogKeep.textKeep.getText();
-        for (KeepParameter parameter : editedParameters) {
-            commandStr = commandStr.replace(String.format("<%s>", parameter.getName()), "");
-        }
-        if (commandStr.contains("<") && commandStr.contains(">")) {
+        PhraseTemplate commandTemplate = PhraseTemplate.compile(dialogKeep.textKeep.getText());
+        if (!getEditedParametersNames().containsAll(commandTemplate.getParameterNames())) {
             JOptionPane.showMessageDialog(Application.getContext().getGui(),
                     "Given parameters does not cover all keep parameters, please add missing ones");
             return true;
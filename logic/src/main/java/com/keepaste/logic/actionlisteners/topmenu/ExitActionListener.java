@@ -18,6 +18,7 @@
 
 package com.keepaste.logic.actionlisteners.topmenu;
 
+import com.keepaste.logic.Application;
 import lombok.extern.log4j.Log4j2;
 
 import java.awt.event.ActionEvent;
@@ -31,6 +32,8 @@ public class ExitActionListener implements ActionListener {
     @Override
     public void actionPerformed(ActionEvent e) {
         log.info("TopMenu - Exiting...");
+        // writing the last changes to the Keeps before exiting, rather than leaving it to the shutdown hook
+        Application.getContext().getKeepsManager().flush();
         System.exit(0);
     }
 }
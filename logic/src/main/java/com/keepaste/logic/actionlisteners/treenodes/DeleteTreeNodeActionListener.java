@@ -50,10 +50,16 @@ public class DeleteTreeNodeActionListener extends BaseTreeNodeActionListener {
             return;
         }
 
-        int deletionConfirmed = JOptionPane.showConfirmDialog(
-                Application.getContext().getGui().getContentPane(),
-                String.format("Are you sure you want to delete node \"%s\"",
-                        ((KeepNode) getViewTree().getSelectedNode().getUserObject()).getTitle()),
+        KeepNode selectedKeepNode = (KeepNode) getViewTree().getSelectedNode().getUserObject();
+        int deletionConfirmed = Application.getContext().getKeepsManager().isLibraryRootNode(selectedKeepNode)
+                ? JOptionPane.showConfirmDialog(
+                        Application.getContext().getGui().getContentPane(),
+                        String.format("Are you sure you want to unmount library \"%s\"? its file will be kept",
+                                selectedKeepNode.getTitle()),
+                        "Library unmounting", JOptionPane.YES_NO_OPTION)
+                : JOptionPane.showConfirmDialog(
+                        Application.getContext().getGui().getContentPane(),
+                        String.format("Are you sure you want to delete node \"%s\"", selectedKeepNode.getTitle()),
                         "Node deletion", JOptionPane.YES_NO_OPTION);
 
         if (deletionConfirmed == JOptionPane.YES_OPTION) {
@@ -0,0 +1,87 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.actionlisteners.treenodes;
+
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.KeepsLibrary;
+import com.keepaste.logic.models.KeepsGroup;
+import com.keepaste.logic.views.ViewTree;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+
+/**
+ * This class is an ActionListener for mounting a Keeps library file as a top-level group of the tree.
+ */
+@Log4j2
+public class MountLibraryActionListener extends BaseTreeNodeActionListener {
+
+    /**
+     * Constructor.
+     *
+     * @param viewTree the Keep's {@code ViewTree}
+     */
+    public MountLibraryActionListener(@NonNull final ViewTree viewTree) {
+        super(viewTree);
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(Application.getContext().getGui()) != JFileChooser.APPROVE_OPTION) {
+            log.debug("TreeNodes - Mounting a library canceled by the user");
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        String name = (String) JOptionPane.showInputDialog(
+                Application.getContext().getGui().getContentPane(),
+                "Name the library",
+                "Mount library",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                StringUtils.substringBeforeLast(file.getName(), "."));
+        if (StringUtils.isBlank(name)) {
+            log.debug("TreeNodes - Mounting a library canceled by the user");
+            return;
+        }
+        int readOnly = JOptionPane.showConfirmDialog(
+                Application.getContext().getGui().getContentPane(),
+                "Mount the library as read-only? a read-only library is never written",
+                "Mount library", JOptionPane.YES_NO_CANCEL_OPTION);
+        if (readOnly == JOptionPane.CANCEL_OPTION || readOnly == JOptionPane.CLOSED_OPTION) {
+            log.debug("TreeNodes - Mounting a library canceled by the user");
+            return;
+        }
+
+        try {
+            KeepsGroup libraryRootNode = Application.getContext().getKeepsManager().mountLibrary(
+                    new KeepsLibrary(name, file.getAbsolutePath(), readOnly == JOptionPane.YES_OPTION));
+            // the library is already part of the Keeps, so it is only added to the tree
+            getViewTree().addKeepToTree(libraryRootNode, getViewTree().getRootTreeNode(), false);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(Application.getContext().getGui(),
+                    String.format("Failed to mount library [%s]", file), "Mount library", JOptionPane.ERROR_MESSAGE);
+            log.error("Failed to mount library", ex);
+        }
+    }
+}
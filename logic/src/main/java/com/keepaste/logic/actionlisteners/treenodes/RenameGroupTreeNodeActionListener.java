@@ -56,7 +56,7 @@ public class RenameGroupTreeNodeActionListener extends BaseTreeNodeActionListene
                 groupNode.setTitle(newGroupTitle);
                 selectedNode.setUserObject(groupNode);
                 getViewTree().resetSelectedNode();
-                Application.getContext().getKeepsManager().saveKeeps((KeepsGroup) getViewTree().getRootTreeNode().getUserObject());
+                Application.getContext().getKeepsManager().keepUpdated(groupNode);
                 log.debug("TreeNodes - Renamed group tree node from [{}] to [{}]", oldTitle, newGroupTitle);
             } else {
                 log.debug("TreeNodes - Renaming was probably cancelled as the new name was not set");
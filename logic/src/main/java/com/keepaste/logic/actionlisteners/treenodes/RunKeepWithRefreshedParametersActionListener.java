@@ -41,7 +41,9 @@ public class RunKeepWithRefreshedParametersActionListener extends BaseTreeNodeAc
         DefaultMutableTreeNode selectedNode = getViewTree().getSelectedNode();
         log.debug("TreeNodes - Running a keep with refreshed parameters, selected node [{}]", selectedNode);
         if (selectedNode != null &&  selectedNode.getUserObject() instanceof Keep) {
-            Application.getContext().getKeepExecutionManager().executeKeepOnWindow((Keep) selectedNode.getUserObject(), true);
+            Keep keep = (Keep) selectedNode.getUserObject();
+            // cached parameter command outputs are refreshed as well, once the commands are substituted
+            Application.getContext().getKeepExecutionManager().executeKeepOnWindow(keep, true);
         }
         log.debug("TreeNodes - Ran a keep with refreshed parameters, selected node [{}]", selectedNode);
     }
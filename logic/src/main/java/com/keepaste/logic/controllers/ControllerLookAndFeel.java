@@ -22,6 +22,7 @@ import com.keepaste.logic.Application;
 import com.keepaste.logic.common.BaseSubject;
 import com.keepaste.logic.common.Observer;
 import com.keepaste.logic.managers.SettingsManager;
+import com.keepaste.logic.managers.tree.KeepIconCache;
 import com.keepaste.logic.models.Model;
 import com.keepaste.logic.models.ModelSettings;
 import com.keepaste.logic.views.ViewLookAndFeel;
@@ -32,6 +33,8 @@ import lombok.NonNull;
  */
 public class ControllerLookAndFeel extends BaseSubject implements Observer {
 
+    // the theme the Keeps icons are cached for
+    private String cachedIconsTheme;
 
     /**
      * Constructor.
@@ -52,6 +55,13 @@ public class ControllerLookAndFeel extends BaseSubject implements Observer {
     public void updateObserver(Model model) {
         // saving the change
         SettingsManager.saveSettingsToFile(Application.getContext().getModelSettings());
+        // the Keeps icons are drawn per theme, re-warming them once the theme is set or changed
+        String themeName = Application.getContext().getModelSettings().getTheme().getName();
+        if (!themeName.equals(cachedIconsTheme)) {
+            cachedIconsTheme = themeName;
+            KeepIconCache.invalidate();
+            KeepIconCache.warmUp(Application.getContext().getKeepsManager().getRootNode());
+        }
         // update the view, if any
         this.updateAllObservers(model);
     }
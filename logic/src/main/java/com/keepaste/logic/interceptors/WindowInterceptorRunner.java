@@ -30,38 +30,69 @@ import java.util.concurrent.TimeUnit;
 /**
  * This class is a {@code Runnable} that runs in parallel thread and samples the currently active window.
  * The active window is where Keeps will be pasted upon execution of a Keep.
+ * It either samples the active window constantly, or only for a short while around the focus transitions of the
+ * Keepaste window, as the active window only matters once the user moves to Keepaste, and is idle otherwise.
  */
 @Log4j2
 public class WindowInterceptorRunner extends BaseSubject implements Runnable {
+    public static final int BURST_DURATION_IN_MS = 1000;
+
     private final WindowManager windowManager;
     private final ModelActiveWindow modelActiveWindow;
     private final int interceptIntervalInMs;
+    private final Mode mode;
     private WindowInformation lastInterceptedWindow = null;
+    // guarded by 'this', the time until which the active window is sampled when driven by focus events
+    private long burstEndsAt;
+    private boolean isSampleRequested;
 
     public WindowInterceptorRunner(@NonNull final WindowManager windowManager,
                                    @NonNull final ModelActiveWindow modelActiveWindow,
                                    final int interceptIntervalInMs) {
+        this(windowManager, modelActiveWindow, interceptIntervalInMs, Mode.POLLING);
+    }
+
+    public WindowInterceptorRunner(@NonNull final WindowManager windowManager,
+                                   @NonNull final ModelActiveWindow modelActiveWindow,
+                                   final int interceptIntervalInMs,
+                                   @NonNull final Mode mode) {
         this.windowManager = windowManager;
         this.modelActiveWindow = modelActiveWindow;
         this.interceptIntervalInMs = interceptIntervalInMs;
+        this.mode = mode;
+        // sampling once started, so the active window is known before the first focus transition
+        this.burstEndsAt = System.currentTimeMillis() + BURST_DURATION_IN_MS;
+    }
+
+    /**
+     * Will sample the active window for a short while, until {@code BURST_DURATION_IN_MS} from now.
+     * Called on focus transitions, does nothing when sampling constantly.
+     */
+    public synchronized void sampleBurst() {
+        burstEndsAt = Math.max(burstEndsAt, System.currentTimeMillis() + BURST_DURATION_IN_MS);
+        notifyAll();
+    }
+
+    /**
+     * Will sample the active window once more and stop sampling, as Keepaste is now the active window.
+     * Called on focus transitions, does nothing when sampling constantly.
+     */
+    public synchronized void sampleOnce() {
+        // a single sample, in case the previous window is still reported while Keepaste is being activated
+        isSampleRequested = true;
+        burstEndsAt = 0;
+        notifyAll();
     }
 
     @Override
     public void run() {
-        log.info("Starting monitoring active windows");
+        log.info("Starting monitoring active windows in [{}] mode", mode);
         try {
             do {
-                WindowInformation interceptedWindow = windowManager.getActiveWindow();
-
-                // we do not want the window interceptor to intercept our keepaste app window as an active window
-                if (interceptedWindow != null
-                        && !interceptedWindow.getApp().toLowerCase().contains("java")
-                        && !interceptedWindow.getApp().toLowerCase().endsWith("keepaste")
-                        && !interceptedWindow.equals(lastInterceptedWindow)) {
-                    log.debug("Intercepted window = [{}]", interceptedWindow);
-                    modelActiveWindow.setInterceptedWindow(interceptedWindow);
-                    lastInterceptedWindow = interceptedWindow;
+                if (mode == Mode.FOCUS_EVENTS) {
+                    awaitBurst();
                 }
+                intercept();
                 TimeUnit.MILLISECONDS.sleep(interceptIntervalInMs);
             } while (!Thread.currentThread().isInterrupted());
         } catch (InterruptedException ex) {
@@ -73,4 +104,39 @@ public class WindowInterceptorRunner extends BaseSubject implements Runnable {
             log.debug("WindowInterceptorRunner stopped");
         }
     }
+
+    private synchronized void awaitBurst() throws InterruptedException {
+        while (!isSampleRequested && System.currentTimeMillis() > burstEndsAt) {
+            wait();
+        }
+        isSampleRequested = false;
+    }
+
+    private void intercept() {
+        WindowInformation interceptedWindow = windowManager.getActiveWindow();
+
+        // we do not want the window interceptor to intercept our keepaste app window as an active window
+        if (interceptedWindow != null
+                && !interceptedWindow.getApp().toLowerCase().contains("java")
+                && !interceptedWindow.getApp().toLowerCase().endsWith("keepaste")
+                && !interceptedWindow.equals(lastInterceptedWindow)) {
+            log.debug("Intercepted window = [{}]", interceptedWindow);
+            modelActiveWindow.setInterceptedWindow(interceptedWindow);
+            lastInterceptedWindow = interceptedWindow;
+        }
+    }
+
+    /**
+     * The ways to sample the active window.
+     */
+    public enum Mode {
+        /**
+         * Sampling the active window constantly.
+         */
+        POLLING,
+        /**
+         * Sampling the active window only around the focus transitions of the Keepaste window.
+         */
+        FOCUS_EVENTS
+    }
 }
@@ -0,0 +1,277 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.utils.FileSystemUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * This class holds the values set to global parameters, shared by all the Keeps.
+ * Readers are never blocked - they read an immutable snapshot of the values, which is replaced on every change.
+ * A value is computed once even when several Keeps ask for it at the same time, and the values may be persisted in
+ * the background so they are kept between runs.
+ */
+@Log4j2
+public final class GlobalParameterStore {
+    public static final long WRITE_BEHIND_DELAY_IN_MS = 1000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final File storeFile;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            CommandExecutor.daemonThreadFactory("keepaste-global-parameters-writer"));
+    private final Map<String, ReentrantLock> computeLocks = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyMap());
+    // guarded by 'this'
+    private boolean isPersistent;
+    private ScheduledFuture<?> pendingWrite;
+
+    /**
+     * Constructor.
+     */
+    public GlobalParameterStore() {
+        this(new File(FileSystemUtils.getKeepasteDirectory().concat("/global-parameters.json")));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param storeFile the file to persist the values to
+     */
+    public GlobalParameterStore(@NonNull final File storeFile) {
+        this.storeFile = storeFile;
+        // the last changes may still wait to be written when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "keepaste-global-parameters-flush"));
+    }
+
+    /**
+     * Will return the current values, the returned snapshot never changes.
+     *
+     * @return the current values
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Will return the value of a global parameter.
+     *
+     * @param name the name of the parameter
+     * @return the value of the parameter, or null if it is not set
+     */
+    public String get(@NonNull final String name) {
+        return snapshot.getValues().get(name);
+    }
+
+    /**
+     * Will return true if a value is set to a global parameter.
+     *
+     * @param name the name of the parameter
+     * @return true if a value is set to the parameter
+     */
+    public boolean contains(@NonNull final String name) {
+        return snapshot.getValues().containsKey(name);
+    }
+
+    /**
+     * Will return the value of a global parameter, or compute and set it if it is not set.
+     * While a value is computed, other callers asking for the same parameter wait for it instead of computing it again.
+     *
+     * @param name          the name of the parameter
+     * @param valueComputer computes the value, an empty value is not set
+     * @return the value of the parameter
+     * @throws InterruptedException in case the caller was interrupted while waiting or computing
+     */
+    public String getOrCompute(@NonNull final String name, @NonNull final ValueComputer valueComputer) throws InterruptedException {
+        String value = get(name);
+        if (value != null) {
+            return value;
+        }
+
+        ReentrantLock computeLock = computeLocks.computeIfAbsent(name, key -> new ReentrantLock());
+        computeLock.lockInterruptibly();
+        try {
+            // the value may have been computed while waiting
+            value = get(name);
+            if (value == null) {
+                value = valueComputer.compute();
+                if (!StringUtils.isEmpty(value)) {
+                    put(name, value);
+                }
+            } else {
+                log.debug("Global parameter [{}] was set while waiting for it", name);
+            }
+            return value;
+        } finally {
+            computeLock.unlock();
+        }
+    }
+
+    /**
+     * Will set the value of a global parameter.
+     *
+     * @param name  the name of the parameter
+     * @param value the value
+     */
+    public void put(@NonNull final String name, @NonNull final String value) {
+        update(values -> values.put(name, value));
+    }
+
+    /**
+     * Will remove the values of global parameters, so they will be asked for again.
+     *
+     * @param names the names of the parameters
+     */
+    public void remove(@NonNull final Collection<String> names) {
+        update(values -> values.keySet().removeAll(names));
+    }
+
+    /**
+     * Will set if to persist the values, so they are kept between runs.
+     * Enabling it loads the values persisted earlier, disabling it deletes them.
+     *
+     * @param value the value
+     */
+    public synchronized void setPersistent(final boolean value) {
+        if (value == isPersistent) {
+            return;
+        }
+        isPersistent = value;
+        if (value) {
+            Map<String, String> persistedValues = load();
+            // values set in this run take precedence over the persisted ones
+            update(values -> persistedValues.forEach(values::putIfAbsent));
+        } else {
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+                pendingWrite = null;
+            }
+            FileSystemUtils.deleteFile(storeFile.getPath());
+        }
+    }
+
+    /**
+     * Will write the values that are waiting to be persisted now.
+     */
+    public synchronized void flush() {
+        if (pendingWrite != null) {
+            pendingWrite.cancel(false);
+            pendingWrite = null;
+            write();
+        }
+    }
+
+    private synchronized void update(Consumer<Map<String, String>> change) {
+        Map<String, String> values = new HashMap<>(snapshot.getValues());
+        change.accept(values);
+        snapshot = new Snapshot(snapshot.getVersion() + 1, Collections.unmodifiableMap(values));
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        // changes made until the write takes place are written together
+        if (isPersistent && pendingWrite == null) {
+            pendingWrite = writer.schedule(this::writePending, WRITE_BEHIND_DELAY_IN_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void writePending() {
+        if (pendingWrite != null) {
+            pendingWrite = null;
+            write();
+        }
+    }
+
+    private void write() {
+        Snapshot snapshotToWrite = snapshot;
+        Path storePath = storeFile.toPath();
+        Path tempPath = storePath.resolveSibling(storeFile.getName().concat(".tmp"));
+        try {
+            MAPPER.writeValue(tempPath.toFile(), snapshotToWrite.getValues());
+            // replacing the file at once, so a crash while writing never leaves a partially written file
+            Files.move(tempPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Global parameters version [{}] written to file [{}]", snapshotToWrite.getVersion(), storeFile);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to write global parameters to file [%s]", storeFile), ex);
+        }
+    }
+
+    private Map<String, String> load() {
+        if (!storeFile.exists()) {
+            return Collections.emptyMap();
+        }
+        try {
+            log.debug("Loading global parameters from file [{}]", storeFile);
+            return MAPPER.readValue(storeFile, new TypeReference<Map<String, String>>() { });
+        } catch (IOException ex) {
+            log.error(String.format("Failed to load global parameters from file [%s]", storeFile), ex);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * This interface computes the value of a global parameter, usually by asking the user for it.
+     */
+    @FunctionalInterface
+    public interface ValueComputer {
+        /**
+         * Will compute the value.
+         *
+         * @return the value, or null if no value was given
+         * @throws InterruptedException in case the computation was interrupted
+         */
+        String compute() throws InterruptedException;
+    }
+
+    /**
+     * This class is an immutable version of the global parameters values.
+     */
+    @Getter
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, String> values;
+
+        private Snapshot(long version, Map<String, String> values) {
+            this.version = version;
+            this.values = values;
+        }
+    }
+}
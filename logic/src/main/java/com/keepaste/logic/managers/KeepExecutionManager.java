@@ -20,31 +20,57 @@ package com.keepaste.logic.managers;
 
 import com.keepaste.logic.Application;
 import com.keepaste.logic.exceptions.KeepExecutionException;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.managers.command.CommandResultCache;
+import com.keepaste.logic.managers.command.ShellSessionPool;
+import com.keepaste.logic.managers.delivery.DeliveryBackend;
+import com.keepaste.logic.managers.delivery.TmuxDeliveryBackend;
 import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.WindowInformation;
 import com.keepaste.logic.utils.FileSystemUtils;
 import com.keepaste.logic.utils.OperatingSystemUtils;
+import lombok.Getter;
+import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
-import javax.swing.*;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * This class hods methods related to Keep execution.
  */
 @Log4j2
 public final class KeepExecutionManager {
-    public static final Map<String, String> GLOBAL_PARAMETER_VALUES_MAP = new HashMap<>();
     public static final int COMMAND_EXEC_TIMEOUT = 15;
+    public static final int MAX_CONCURRENT_PARAMETER_COMMANDS = 4;
 
     private String shell = "/bin/bash";
+    private final CommandExecutor commandExecutor = new CommandExecutor();
+    private ShellSessionPool shellSessionPool;
+    @Getter
+    private final GlobalParameterStore globalParameterStore = new GlobalParameterStore();
+    @Getter
+    private final CommandResultCache commandResultCache = new CommandResultCache();
+    @Getter
+    private final KeepExecutionMetrics keepExecutionMetrics = new KeepExecutionMetrics();
+    @Getter
+    private final KeepExecutionScheduler keepExecutionScheduler = new KeepExecutionScheduler();
+    @Getter
+    private final ParameterPrefetcher parameterPrefetcher = new ParameterPrefetcher(this);
+    // tried in order before pasting on the target window
+    private final List<DeliveryBackend> deliveryBackends = new CopyOnWriteArrayList<>();
+    @Getter
+    private final ExecutorService parameterCommandsExecutor = Executors.newFixedThreadPool(
+            MAX_CONCURRENT_PARAMETER_COMMANDS, CommandExecutor.daemonThreadFactory("keepaste-parameter-command"));
 
     /**
      * Constructor.
@@ -63,6 +89,10 @@ public final class KeepExecutionManager {
                     Thread.currentThread().interrupt();
                 }
             }
+            if (ShellSessionPool.isSupportedShell(shell)) {
+                shellSessionPool = new ShellSessionPool(shell, commandExecutor);
+            }
+            deliveryBackends.add(new TmuxDeliveryBackend(commandExecutor));
         }
     }
 
@@ -87,34 +117,68 @@ public final class KeepExecutionManager {
                 "Executing Keep [{}] on window [{}] with refresh parameters [{}]",
                 keep.toStringAll(), Application.getContext().getModelActiveWindow(), refreshParameters);
 
-        // stopping window interception while running the Keep to prevent pasting on wrong window
-        Application.getContext().stopWindowInterceptorRunner();
-
-        // validating that only one keep is running at a time
-        if (isAKeepAlreadyRunning()) return;
+        // executing the command on another thread not to block the main GUI thread, other keeps may be running as well
+        keepExecutionScheduler.submit(new KeepExecutionWorker(keep, refreshParameters));
+        updateRunningKeepsState();
+    }
 
-        // setting keep is running
-        Application.getContext().setKeepCurrentlyRunning(true);
+    /**
+     * Will add a backend to deliver Keeps straight into their target windows, tried after the backends added before it.
+     *
+     * @param deliveryBackend the {@code DeliveryBackend} to add
+     */
+    public void addDeliveryBackend(@NonNull final DeliveryBackend deliveryBackend) {
+        deliveryBackends.add(deliveryBackend);
+    }
 
-        showExecutingKeepLabel();
+    /**
+     * Will deliver a Keep straight into its target window through the first backend able to reach the window.
+     *
+     * @param targetWindow  the {@code WindowInformation} of the window the Keep was executed on
+     * @param phrase        the final Keep command to deliver
+     * @param pressEnter    if to press 'enter' once the command is delivered
+     * @return true if delivered, false if no backend reached the window and the Keep should be pasted on it instead
+     */
+    public boolean deliver(@NonNull final WindowInformation targetWindow, @NonNull final String phrase, final boolean pressEnter) {
+        for (DeliveryBackend deliveryBackend : deliveryBackends) {
+            if (deliveryBackend.deliver(targetWindow, phrase, pressEnter)) {
+                log.info("Keep delivered to window [{}] through [{}]", targetWindow, deliveryBackend.getName());
+                return true;
+            }
+        }
+        return false;
+    }
 
-        // executing the command on another thread not to block the main GUI thread
-        new KeepExecutionWorker(keep, refreshParameters).execute();
+    /**
+     * Will abort all the currently running Keeps, killing any of their commands that are still running.
+     */
+    public void abortRunningKeeps() {
+        keepExecutionScheduler.abortAll();
     }
 
-    private static void showExecutingKeepLabel() {
-        Application.getContext().getGui().labelBackground.setText("Executing keep...");
-        Application.getContext().getGui().labelBackground.setVisible(true);
+    /**
+     * Will mark a Keep execution as done.
+     * Should be called on the event dispatch thread.
+     *
+     * @param keepExecutionWorker the worker that executed the Keep
+     */
+    public void onKeepExecutionDone(KeepExecutionWorker keepExecutionWorker) {
+        keepExecutionScheduler.completed(keepExecutionWorker);
+        updateRunningKeepsState();
     }
 
-    private static boolean isAKeepAlreadyRunning() {
-        if (Application.getContext().isKeepCurrentlyRunning()) {
-            JOptionPane.showMessageDialog(Application.getContext().getGui(),
-                    "Can only run one Keep at a time, please wait for the other Keep to finish or abort it",
-                    "One Keep at a time please", JOptionPane.WARNING_MESSAGE);
-            return true;
+    private void updateRunningKeepsState() {
+        int runningKeepsCount = keepExecutionScheduler.getRunningKeepsCount();
+        Application.getContext().setKeepCurrentlyRunning(runningKeepsCount > 0);
+        if (runningKeepsCount > 0) {
+            Application.getContext().getGui().labelBackground.setText(runningKeepsCount == 1
+                    ? "Executing keep... (click or 'Esc' to abort)"
+                    : String.format("Executing %d keeps... (click or 'Esc' to abort)", runningKeepsCount));
+            Application.getContext().getGui().labelBackground.setVisible(true);
+        } else {
+            // hiding the temp background label
+            Application.getContext().getGui().labelBackground.setVisible(false);
         }
-        return false;
     }
 
     /**
@@ -141,6 +205,20 @@ public final class KeepExecutionManager {
         return executeCommand(List.of(command), false);
     }
 
+    /**
+     * Will execute a command in shell and return its output as a list of Strings, streaming each line as it is printed.
+     *
+     * @param command       the command to execute
+     * @param lineListener  will be given each output line as soon as the command prints it
+     * @return  the execution output
+     * @throws IOException in case of execution failure
+     * @throws InterruptedException in case of execution failure
+     */
+    public List<String> executeCommand(String command, Consumer<String> lineListener)
+            throws KeepExecutionException, IOException, InterruptedException {
+        return executeCommand(List.of(command), false, lineListener);
+    }
+
     /**
      * Will execute a command in shell and return its output as a list of Strings.
      *
@@ -153,6 +231,11 @@ public final class KeepExecutionManager {
      */
     public List<String> executeCommand(List<String> commandLines, boolean defaultPath)
             throws KeepExecutionException, IOException, InterruptedException {
+        return executeCommand(commandLines, defaultPath, CommandExecutor.NO_LINE_LISTENER);
+    }
+
+    private List<String> executeCommand(List<String> commandLines, boolean defaultPath, Consumer<String> lineListener)
+            throws KeepExecutionException, IOException, InterruptedException {
         ProcessBuilder processBuilder = new ProcessBuilder();
         // Set the working directory for the process
         processBuilder.directory(new File(FileSystemUtils.getUserHomeDirectory()));
@@ -184,31 +267,42 @@ public final class KeepExecutionManager {
                 break;
         }
         processBuilder.redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        InputStream inputStream = process.getInputStream();
-
-        BufferedReader reader =
-                new BufferedReader(new InputStreamReader(inputStream));
-
-        int timeout = COMMAND_EXEC_TIMEOUT;
-        do {
-            timeout--;
-            process.waitFor(1, TimeUnit.SECONDS);
-        } while (process.isAlive() && timeout > 0);
 
-        if (timeout <= 0) {
-            throw new KeepExecutionException("Command timeout exceeded (10 sec.)");
+        if (!defaultPath && shellSessionPool != null && commandLines.size() == 1) {
+            // user commands are executed on a warm shell session when one is available
+            CompletableFuture<List<String>> output = shellSessionPool.execute(
+                    commandLines.get(0), processBuilder.environment().get("PATH"), COMMAND_EXEC_TIMEOUT, lineListener);
+            if (output != null) {
+                try {
+                    return awaitOutput(output);
+                } catch (KeepExecutionException ex) {
+                    // only a command the session failed to take is executed again, one that may have already run
+                    // (and streamed its output) is not
+                    if (!(ex.getCause() instanceof IOException)) {
+                        throw ex;
+                    }
+                    log.warn("Shell session failed before executing the command, executing it on a new process", ex);
+                }
+            }
         }
 
-        String line;
-        List<String> outputLines = new ArrayList<>();
-        if (inputStream.available() > 0) {
-            while ((line = reader.readLine()) != null) {
-                outputLines.add(line);
+        return awaitOutput(commandExecutor.execute(processBuilder, COMMAND_EXEC_TIMEOUT, lineListener));
+    }
+
+    private static List<String> awaitOutput(CompletableFuture<List<String>> output)
+            throws KeepExecutionException, InterruptedException {
+        try {
+            return output.get();
+        } catch (InterruptedException ex) {
+            // no one waits for the output anymore, killing the process
+            output.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof KeepExecutionException) {
+                throw (KeepExecutionException) ex.getCause();
             }
+            Throwable cause = ex.getCause() instanceof UncheckedIOException ? ex.getCause().getCause() : ex.getCause();
+            throw new KeepExecutionException("Failed to execute command", cause);
         }
-        inputStream.close();
-        return outputLines;
     }
 }
@@ -0,0 +1,95 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class counts Keep executions by how they ended, along with the time they took.
+ */
+public final class KeepExecutionMetrics {
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalDurationInMs = new AtomicLong();
+
+    /**
+     * Will record that a Keep execution has started.
+     */
+    public void recordStarted() {
+        started.incrementAndGet();
+    }
+
+    /**
+     * Will record that a Keep execution has completed.
+     *
+     * @param durationInMs the time the execution took
+     */
+    public void recordCompleted(final long durationInMs) {
+        completed.incrementAndGet();
+        totalDurationInMs.addAndGet(durationInMs);
+    }
+
+    /**
+     * Will record that a Keep execution was cancelled, either by the user or by aborting it.
+     *
+     * @param durationInMs the time the execution took until it was cancelled
+     */
+    public void recordCancelled(final long durationInMs) {
+        cancelled.incrementAndGet();
+        totalDurationInMs.addAndGet(durationInMs);
+    }
+
+    /**
+     * Will record that a Keep execution has failed.
+     *
+     * @param durationInMs the time the execution took until it failed
+     */
+    public void recordFailed(final long durationInMs) {
+        failed.incrementAndGet();
+        totalDurationInMs.addAndGet(durationInMs);
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTotalDurationInMs() {
+        return totalDurationInMs.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("started=%d, completed=%d, cancelled=%d, failed=%d, totalDurationInMs=%d",
+                getStarted(), getCompleted(), getCancelled(), getFailed(), getTotalDurationInMs());
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.models.WindowInformation;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class schedules Keeps that are executed concurrently.
+ * The parameters of the Keeps are resolved concurrently, while their pasting is serialized - Keeps targeting the same
+ * window are pasted on it in the order they were executed, and only one Keep at a time focuses on its window to paste.
+ * The parameter dialogs of one Keep are shown before the ones of the next Keep, so the user is never asked for the
+ * values of two Keeps at once.
+ */
+@Log4j2
+public final class KeepExecutionScheduler {
+    private final Set<KeepExecutionWorker> runningWorkers = ConcurrentHashMap.newKeySet();
+    // the turn of the last Keep executed on each window, guarded by 'this'
+    private final Map<WindowKey, WindowTurn> lastWindowTurns = new HashMap<>();
+    // focusing on a window, pasting and pressing enter must not interleave between windows
+    private final ReentrantLock focusLock = new ReentrantLock(true);
+    private final ReentrantLock interactionLock = new ReentrantLock(true);
+
+    /**
+     * Will start executing a Keep.
+     *
+     * @param keepExecutionWorker the worker executing the Keep
+     */
+    public void submit(@NonNull final KeepExecutionWorker keepExecutionWorker) {
+        runningWorkers.add(keepExecutionWorker);
+        keepExecutionWorker.execute();
+    }
+
+    /**
+     * Will mark a Keep execution as done.
+     *
+     * @param keepExecutionWorker the worker that executed the Keep
+     */
+    public void completed(@NonNull final KeepExecutionWorker keepExecutionWorker) {
+        runningWorkers.remove(keepExecutionWorker);
+    }
+
+    /**
+     * Will return the number of Keeps that are currently executed.
+     *
+     * @return the number of Keeps that are currently executed
+     */
+    public int getRunningKeepsCount() {
+        return runningWorkers.size();
+    }
+
+    /**
+     * Will abort all the Keeps that are currently executed.
+     */
+    public void abortAll() {
+        runningWorkers.forEach(KeepExecutionWorker::abort);
+    }
+
+    /**
+     * Will take the next turn to paste on a window.
+     * Should be taken as soon as the Keep is executed, so the Keeps are pasted in the order they were executed.
+     *
+     * @param window the window the Keep will be pasted on
+     * @return the turn to paste on the window
+     */
+    public synchronized WindowTurn takeTurn(final WindowInformation window) {
+        WindowKey windowKey = WindowKey.of(window);
+        WindowTurn windowTurn = new WindowTurn(window, windowKey, lastWindowTurns.get(windowKey));
+        lastWindowTurns.put(windowKey, windowTurn);
+        return windowTurn;
+    }
+
+    /**
+     * Will release a turn to paste on a window, letting the next Keep targeting the window paste on it.
+     * Must be called once the Keep execution is done, whether it pasted or not.
+     *
+     * @param windowTurn the turn to release
+     */
+    public synchronized void release(@NonNull final WindowTurn windowTurn) {
+        windowTurn.done.countDown();
+        lastWindowTurns.remove(windowTurn.windowKey, windowTurn);
+    }
+
+    /**
+     * Will wait for the turn to paste on a window, then deliver the Keep to it while no other Keep is delivered.
+     *
+     * @param windowTurn    the turn to paste on the window
+     * @param delivery      focusing on the window, pasting and pressing enter
+     * @throws InterruptedException in case the Keep execution was aborted while waiting for its turn
+     */
+    public void deliver(@NonNull final WindowTurn windowTurn, @NonNull final Runnable delivery) throws InterruptedException {
+        if (windowTurn.previousTurn != null) {
+            log.debug("Waiting for the previous Keep to be pasted on window [{}]", windowTurn.window);
+            windowTurn.previousTurn.done.await();
+        }
+        focusLock.lockInterruptibly();
+        try {
+            delivery.run();
+        } finally {
+            focusLock.unlock();
+        }
+    }
+
+    /**
+     * Will wait until no other Keep interacts with the user, then take over the interaction.
+     * Does nothing if the current thread already interacts with the user.
+     *
+     * @throws InterruptedException in case the Keep execution was aborted while waiting
+     */
+    public void startInteraction() throws InterruptedException {
+        if (!interactionLock.isHeldByCurrentThread()) {
+            interactionLock.lockInterruptibly();
+        }
+    }
+
+    /**
+     * Will let the next Keep interact with the user.
+     * Does nothing if the current thread does not interact with the user.
+     */
+    public void endInteraction() {
+        if (interactionLock.isHeldByCurrentThread()) {
+            interactionLock.unlock();
+        }
+    }
+
+    /**
+     * This class is the turn of a Keep to be pasted on its target window.
+     */
+    public static final class WindowTurn {
+        private final WindowInformation window;
+        private final WindowKey windowKey;
+        private final WindowTurn previousTurn;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private WindowTurn(WindowInformation window, WindowKey windowKey, WindowTurn previousTurn) {
+            this.window = window;
+            this.windowKey = windowKey;
+            this.previousTurn = previousTurn;
+        }
+    }
+
+    /**
+     * This class identifies a window across changes to its title and bounds, which a terminal changes with every
+     * command it runs - by its process and, where the operating system provides one, its handle.
+     */
+    @EqualsAndHashCode
+    private static final class WindowKey {
+        private final int processId;
+        private final Object hwnd;
+
+        private WindowKey(int processId, Object hwnd) {
+            this.processId = processId;
+            this.hwnd = hwnd;
+        }
+
+        private static WindowKey of(WindowInformation window) {
+            return window == null ? null : new WindowKey(window.getProcessId(), window.getHwnd());
+        }
+    }
+}
@@ -21,22 +21,38 @@ package com.keepaste.logic.managers;
 import com.keepaste.logic.Application;
 import com.keepaste.logic.exceptions.KeepExecutionException;
 import com.keepaste.logic.exceptions.KeepParameterExecutionException;
+import com.keepaste.logic.managers.command.CommandResultCache;
 import com.keepaste.logic.models.Keep;
 import com.keepaste.logic.models.KeepParameter;
+import com.keepaste.logic.models.PhraseTemplate;
 import com.keepaste.logic.models.WindowInformation;
 import com.keepaste.logic.utils.ClipboardUtils;
 import com.keepaste.logic.utils.GuiUtils;
 import com.keepaste.logic.utils.KeyboardUtils;
+import com.keepaste.logic.views.ViewParameterOptionsDialog;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -45,10 +61,21 @@ import java.util.stream.Collectors;
 @Log4j2
 public class KeepExecutionWorker extends SwingWorker<Void, String> {
     private static final String FAILED_TO_EXECUTE_KEEP = "Failed to execute keep";
+    private static final String KEEP_EXECUTION_ABORTED = "Keep execution was aborted";
     private final Keep keep;
     private final boolean refreshParameters;
     private final WindowInformation targetWindow;
     private final TreePath treeSelectedPath;
+    private final Map<String, ParameterPrefetcher.PrefetchedCommand> prefetchedCommands;
+    private final Map<String, ParameterCommand> parameterCommands = new ConcurrentHashMap<>();
+    // the option pane dialogs currently shown by this execution, closed once it is aborted
+    private final Set<JDialog> shownDialogs = ConcurrentHashMap.newKeySet();
+    private final KeepExecutionScheduler keepExecutionScheduler;
+    private final KeepExecutionScheduler.WindowTurn windowTurn;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile boolean isKeepCancelled;
+    // stays negative for Keeps without parameters
+    private volatile long parametersResolutionInMs = -1;
 
     /**
      * a {@code SwingWorker} to execute a keep on the currently active window.
@@ -60,12 +87,21 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
         this.keep = keep;
         this.refreshParameters = refreshParameters;
 
+        // taking over the commands prefetched when the keep was selected, before the selection is cleared
+        prefetchedCommands = new ConcurrentHashMap<>(
+                Application.getContext().getKeepExecutionManager().getParameterPrefetcher().claim(keep));
+        Application.getContext().getKeepExecutionManager().getKeepExecutionMetrics().recordStarted();
+
         // clearing selection from tree not to accidentally executing the selected node when the user presses the 'enter'
         // key (like on dialogs)
         treeSelectedPath = getAndClearTreeSelection();
 
         // keeping the active window that the user meant to paste on
         targetWindow = Application.getContext().getModelActiveWindow().getActiveWindow();
+
+        // keeps targeting the same window are pasted in the order they were executed
+        keepExecutionScheduler = Application.getContext().getKeepExecutionManager().getKeepExecutionScheduler();
+        windowTurn = keepExecutionScheduler.takeTurn(targetWindow);
     }
 
     @Override
@@ -75,12 +111,11 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
 
         log.info("Final Keep command to execute [{}]", commandToExecute);
 
-        if (!StringUtils.isEmpty(commandToExecute)) {
-            // copying to clipboard always takes place
-            copyToClipboard(commandToExecute);
-
+        if (StringUtils.isEmpty(commandToExecute)) {
+            isKeepCancelled = true;
+        } else if (!isCancelled()) {
             // running execution flow based on flow settings
-            runExecutionFlow();
+            runExecutionFlow(commandToExecute);
         }
         return null;
     }
@@ -88,26 +123,170 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
     @Override
     protected void done() {
         log.debug("Completing keep execution");
-        // hiding the temp background label
-        Application.getContext().getGui().labelBackground.setVisible(false);
-        // setting false flag saying there is no currently running keep
-        Application.getContext().setKeepCurrentlyRunning(false);
-        // starting back the window interceptor
-        Application.getContext().startWindowInterceptorRunner();
-        // setting back the tree selection path (was removed to prevent from executing keep nodes when pressing 'enter' while keep is running, like when interacting with parameter dialogs)
-        Application.getContext().getGui().tree.setSelectionPath(treeSelectedPath);
+        recordMetrics();
+        // letting the next keep targeting the same window paste on it, even if this one did not
+        keepExecutionScheduler.release(windowTurn);
+        Application.getContext().getKeepExecutionManager().onKeepExecutionDone(this);
+        if (!Application.getContext().isKeepCurrentlyRunning()) {
+            // setting back the tree selection path (was removed to prevent from executing keep nodes when pressing 'enter' while keep is running, like when interacting with parameter dialogs)
+            Object restoredNode = treeSelectedPath == null ? null : treeSelectedPath.getLastPathComponent();
+            Object restoredUserObject = restoredNode instanceof DefaultMutableTreeNode
+                    ? ((DefaultMutableTreeNode) restoredNode).getUserObject()
+                    : null;
+            // the parameters of the restored Keep are not prefetched again, they were just resolved
+            Application.getContext().getKeepExecutionManager().getParameterPrefetcher().onSelectionRestored(
+                    restoredUserObject instanceof Keep ? (Keep) restoredUserObject : null);
+            Application.getContext().getGui().tree.setSelectionPath(treeSelectedPath);
+        }
         log.debug("Keep execution completed");
     }
 
+    /**
+     * Will abort the keep execution.
+     * The commands that are still running are killed along with their descendant processes, the dialogs the execution
+     * waits on are closed and the UI is released immediately, without waiting for the background thread to wind down.
+     */
+    public void abort() {
+        log.info("Aborting execution of keep [{}]", keep.getTitle());
+        // cancelling first, so the closed dialogs will not be taken as the user cancelling them
+        cancel(true);
+        parameterCommands.values().forEach(parameterCommand -> parameterCommand.getOutput().cancel(true));
+        prefetchedCommands.values().forEach(prefetchedCommand -> prefetchedCommand.getOutput().cancel(true));
+        // only the dialogs of this execution, other dialogs and the dialogs of other Keeps are left open
+        shownDialogs.forEach(Window::dispose);
+    }
+
+    /**
+     * Will show a message to the user, which is closed in case the keep execution is aborted.
+     *
+     * @param parent        the component to show the dialog over
+     * @param message       the message
+     * @param title         the title of the dialog
+     * @param messageType   the {@code JOptionPane} type of the message
+     */
+    private void showMessageDialog(Component parent, Object message, String title, int messageType) {
+        showOptionPane(parent, new JOptionPane(message, messageType), title);
+    }
+
+    /**
+     * Will ask the user for a value, which is closed in case the keep execution is aborted.
+     *
+     * @param parent            the component to show the dialog over
+     * @param message           the message
+     * @param title             the title of the dialog
+     * @param selectionValues   the values to choose from, or null for a free text value
+     * @return the given value, or null if none was given
+     */
+    private Object showInputDialog(Component parent, Object message, String title, Object[] selectionValues) {
+        JOptionPane optionPane = new JOptionPane(message, JOptionPane.QUESTION_MESSAGE, JOptionPane.OK_CANCEL_OPTION);
+        optionPane.setWantsInput(true);
+        optionPane.setSelectionValues(selectionValues);
+        showOptionPane(parent, optionPane, title);
+        Object value = optionPane.getInputValue();
+        return value == JOptionPane.UNINITIALIZED_VALUE ? null : value;
+    }
+
+    private void showOptionPane(Component parent, JOptionPane optionPane, String title) {
+        JDialog dialog = optionPane.createDialog(parent, title);
+        optionPane.selectInitialValue();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                // aborted right before it was shown
+                if (isCancelled()) {
+                    dialog.dispose();
+                }
+            }
+        });
+        shownDialogs.add(dialog);
+        try {
+            if (!isCancelled()) {
+                dialog.setVisible(true);
+            }
+        } finally {
+            shownDialogs.remove(dialog);
+            dialog.dispose();
+        }
+    }
+
+    /**
+     * Will record how the keep execution ended on the execution metrics, and a completed execution on the Keep's usage
+     * statistics.
+     */
+    private void recordMetrics() {
+        KeepExecutionMetrics keepExecutionMetrics = Application.getContext().getKeepExecutionManager().getKeepExecutionMetrics();
+        long durationInMs = System.currentTimeMillis() - startedAt;
+        if (isCancelled() || isKeepCancelled) {
+            keepExecutionMetrics.recordCancelled(durationInMs);
+        } else {
+            try {
+                get();
+                keepExecutionMetrics.recordCompleted(durationInMs);
+                Application.getContext().getKeepsManager().getKeepUsageStatistics().recordRun(keep, parametersResolutionInMs);
+            } catch (ExecutionException ex) {
+                log.error(FAILED_TO_EXECUTE_KEEP, ex.getCause());
+                keepExecutionMetrics.recordFailed(durationInMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.debug("Keep execution metrics [{}]", keepExecutionMetrics);
+    }
+
+    /**
+     * Will stop the keep execution in case it was aborted.
+     */
+    private void throwIfAborted() {
+        if (isCancelled()) {
+            throw new KeepParameterExecutionException(KEEP_EXECUTION_ABORTED);
+        }
+    }
+
     /**
      * Will run the keep execution flow.
+     *
+     * @param commandToExecute the final keep command to execute
      */
-    private void runExecutionFlow() {
+    private void runExecutionFlow(String commandToExecute) {
         // if next flow phase is not enabled, initiate only copy
         if (!Application.getContext().getModelSettings().isFocusOnWindowAndPaste()) {
+            copyToClipboard(commandToExecute);
             GuiUtils.showTargetWindowLabelMessage("Keep copied, ready to paste...", 1);
         } else {
-            // if next flow phase is enabled, then focusing on active window
+            // if next flow phase is enabled, then focusing on active window, once it is this keep's turn to paste on it
+            try {
+                keepExecutionScheduler.deliver(windowTurn, () -> deliverToTargetWindow(commandToExecute));
+            } catch (InterruptedException ex) {
+                log.debug("Keep execution was aborted while waiting to paste");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Will deliver the keep into the target window through a delivery backend, or else paste it on the window, no other
+     * keep is delivered meanwhile.
+     *
+     * @param commandToExecute the final keep command to execute
+     */
+    private void deliverToTargetWindow(String commandToExecute) {
+        if (isCancelled()) {
+            log.debug("Keep execution was aborted, not pasting");
+            return;
+        }
+
+        // delivering straight into the target window when a backend reaches it, with no focusing and no clipboard
+        boolean pressEnter = Application.getContext().getModelSettings().isPressEnterAfterPaste() && !keep.isNeverPressEnter();
+        if (targetWindow != null
+                && Application.getContext().getKeepExecutionManager().deliver(targetWindow, commandToExecute, pressEnter)) {
+            return;
+        }
+
+        // stopping window interception while pasting to prevent pasting on wrong window
+        Application.getContext().stopWindowInterceptorRunner();
+        try {
+            // copying to clipboard always takes place, only now as other keeps are pasted through the clipboard as well
+            copyToClipboard(commandToExecute);
 
             if (isFocusOnActiveWindow(targetWindow)) {
                 pasteKeep();
@@ -116,9 +295,12 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
             }
 
             // if next floe phase is enabled, then pressing enter
-            if (Application.getContext().getModelSettings().isPressEnterAfterPaste()) {
+            if (Application.getContext().getModelSettings().isPressEnterAfterPaste() && !isCancelled()) {
                 pressEnter(keep);
             }
+        } finally {
+            // starting back the window interceptor
+            Application.getContext().startWindowInterceptorRunner();
         }
     }
 
@@ -137,35 +319,249 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
         Map<String, String> currentParameterValuesMap = new HashMap<>();
 
         if (isKeepHasParameters(keep)) {
-            for (KeepParameter parameter : keep.getParameters()) {
-                log.debug("Processing parameter [{}]", parameter);
-                try {
-                    executeParameter(parameter, keep, refreshParameters, currentParameterValuesMap);
-                } catch (KeepParameterExecutionException ex) {
-                    log.error(FAILED_TO_EXECUTE_KEEP, ex);
-                    return null; // cancelling
-                }
+            long resolutionStartedAt = System.currentTimeMillis();
+            try {
+                resolveParameters(keep, refreshParameters, currentParameterValuesMap);
+                parametersResolutionInMs = System.currentTimeMillis() - resolutionStartedAt;
+            } catch (KeepParameterExecutionException ex) {
+                log.error(FAILED_TO_EXECUTE_KEEP, ex);
+                return null; // cancelling
             }
 
             // setting parameter values to command
-            commandToExecute = setParametersValuesToCommand(currentParameterValuesMap, commandToExecute);
+            commandToExecute = setParametersValuesToCommand(currentParameterValuesMap, keep.getPhraseTemplate());
         }
 
         return commandToExecute;
     }
 
+    /**
+     * Will resolve the values of all the keep's parameters.
+     * Command-type parameters are executed concurrently as soon as all the parameters they refer to are resolved, and
+     * the user is asked for a value as soon as it can be asked for, in the declared order of the parameters.
+     * The value of a command-type parameter can be chosen while its command is still running.
+     *
+     * @param keep                      the executed {@code Keep}
+     * @param isRefreshGlobalParameters if to refresh and request the global parameters again
+     * @param currentParameterValuesMap the map to set the resolved values to
+     */
+    private void resolveParameters(Keep keep, boolean isRefreshGlobalParameters, Map<String, String> currentParameterValuesMap) {
+        ParameterDependencyGraph dependencyGraph = new ParameterDependencyGraph(keep.getParameters());
+        GlobalParameterStore globalParameterStore = Application.getContext().getKeepExecutionManager().getGlobalParameterStore();
+        if (isRefreshGlobalParameters) {
+            // clearing the global parameters of the keep, so they will be asked for again
+            globalParameterStore.remove(dependencyGraph.getParameters().stream()
+                    .filter(KeepParameter::isGlobal)
+                    .map(KeepParameter::getName)
+                    .collect(Collectors.toList()));
+        }
+
+        // the parameters that are left to resolve, in their declared order
+        List<KeepParameter> pendingParameters = new ArrayList<>();
+        for (KeepParameter parameter : dependencyGraph.getParameters()) {
+            // in case of this is a global parameter, checking if the value already exist for it then setting it on the current param values map
+            takeParamValueFromGlobalMapIfExists(parameter, currentParameterValuesMap);
+            if (!isParamValueAlreadyResolved(parameter, currentParameterValuesMap)) {
+                pendingParameters.add(parameter);
+            }
+        }
+
+        try {
+            while (!pendingParameters.isEmpty()) {
+                throwIfAborted();
+                submitReadyParameterCommands(dependencyGraph, pendingParameters, currentParameterValuesMap, parameterCommands);
+                // the user is asked for the values of one keep at a time, the commands of other keeps keep running meanwhile
+                keepExecutionScheduler.startInteraction();
+
+                KeepParameter parameter = pendingParameters.stream()
+                        .filter(pendingParameter -> !ParameterDependencyGraph.isCommandTypeParam(pendingParameter)
+                                || parameterCommands.containsKey(pendingParameter.getName()))
+                        .findFirst()
+                        .orElseThrow(() -> handleUnresolvableParameters(dependencyGraph));
+
+                log.debug("Processing parameter [{}]", parameter);
+                pendingParameters.remove(parameter);
+                // a global parameter is asked for once, even if other keeps are waiting for its value as well
+                String selectedParamValue = parameter.isGlobal()
+                        ? globalParameterStore.getOrCompute(parameter.getName(), () -> askForParameterValue(parameter))
+                        : askForParameterValue(parameter);
+                // the value may have been set by another keep meanwhile, so the command of the parameter is not needed
+                ParameterCommand unusedParameterCommand = parameterCommands.remove(parameter.getName());
+                if (unusedParameterCommand != null) {
+                    unusedParameterCommand.getOutput().cancel(true);
+                }
+                addParamValueToCurrentValuesMap(parameter, currentParameterValuesMap, selectedParamValue);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeepParameterExecutionException("Keep execution was interrupted");
+        } finally {
+            keepExecutionScheduler.endInteraction();
+            // the values of the commands that are still running will never be asked for
+            parameterCommands.values().forEach(parameterCommand -> parameterCommand.getOutput().cancel(true));
+            prefetchedCommands.values().forEach(prefetchedCommand -> prefetchedCommand.getOutput().cancel(true));
+        }
+    }
+
+    /**
+     * Will submit the commands of the pending command-type parameters whose referred parameters are all resolved.
+     *
+     * @param dependencyGraph           the dependencies between the keep's parameters
+     * @param pendingParameters         the parameters that are left to resolve
+     * @param currentParameterValuesMap the currently resolved values map
+     * @param parameterCommands         the submitted commands, by their parameter name
+     */
+    private void submitReadyParameterCommands(ParameterDependencyGraph dependencyGraph,
+                                              List<KeepParameter> pendingParameters,
+                                              Map<String, String> currentParameterValuesMap,
+                                              Map<String, ParameterCommand> parameterCommands) {
+        for (KeepParameter parameter : pendingParameters) {
+            if (ParameterDependencyGraph.isCommandTypeParam(parameter)
+                    && !parameterCommands.containsKey(parameter.getName())
+                    && dependencyGraph.isReady(parameter, currentParameterValuesMap.keySet())) {
+                // setting all resolved parameters values to the command of the param as it may use params as well
+                String paramKeepString = setParametersValuesToCommand(currentParameterValuesMap, parameter.getPhraseTemplate());
+                String path = Application.getContext().getModelSettings().getPath();
+                KeepExecutionManager keepExecutionManager = Application.getContext().getKeepExecutionManager();
+                CommandResultCache commandResultCache = keepExecutionManager.getCommandResultCache();
+                ViewParameterOptionsDialog optionsDialog = new ViewParameterOptionsDialog(parameter.getName());
+
+                if (refreshParameters) {
+                    // the command is executed again, and its fresh output replaces the cached one
+                    commandResultCache.invalidate(paramKeepString, path);
+                }
+                List<String> cachedOutput = parameter.getCacheTtlSeconds() > 0
+                        ? commandResultCache.get(paramKeepString, path)
+                        : null;
+                ParameterPrefetcher.PrefetchedCommand prefetchedCommand = prefetchedCommands.remove(parameter.getName());
+                Future<List<String>> output;
+                if (cachedOutput != null) {
+                    log.debug("Parameter [{}] is of Command type, taking cached output of [{}]", parameter, paramKeepString);
+                    optionsDialog.complete(Arrays.asList(parseToLineByLine(new ArrayList<>(cachedOutput))));
+                    output = CompletableFuture.completedFuture(cachedOutput);
+                } else if (prefetchedCommand != null && prefetchedCommand.isFor(paramKeepString, path)) {
+                    log.debug("Parameter [{}] is of Command type, taking prefetched output of [{}]", parameter, paramKeepString);
+                    output = submitParameterCommand(optionsDialog, () -> awaitPrefetchedCommand(prefetchedCommand));
+                } else {
+                    if (prefetchedCommand != null) {
+                        prefetchedCommand.getOutput().cancel(true);
+                    }
+                    log.debug("Parameter [{}] is of Command type, executing param command [{}]", parameter, paramKeepString);
+                    output = submitParameterCommand(optionsDialog, () -> {
+                        List<String> lines = keepExecutionManager.executeCommand(paramKeepString, optionsDialog::addLine);
+                        commandResultCache.put(paramKeepString, path, lines, parameter.getCacheTtlSeconds());
+                        return lines;
+                    });
+                }
+                parameterCommands.put(parameter.getName(), new ParameterCommand(output, optionsDialog));
+            }
+        }
+    }
+
+    /**
+     * Will submit a parameter command to be executed in the background, feeding its options dialog.
+     *
+     * @param optionsDialog the dialog to choose the parameter value from
+     * @param command       the command returning the output lines
+     * @return a future of the output lines of the command
+     */
+    private Future<List<String>> submitParameterCommand(ViewParameterOptionsDialog optionsDialog,
+                                                        Callable<List<String>> command) {
+        return Application.getContext().getKeepExecutionManager().getParameterCommandsExecutor().submit(() -> {
+            try {
+                List<String> lines = command.call();
+                optionsDialog.complete(Arrays.asList(parseToLineByLine(new ArrayList<>(lines))));
+                return lines;
+            } catch (Exception ex) {
+                optionsDialog.fail();
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Will wait for a prefetched command to complete and return its output.
+     *
+     * @param prefetchedCommand the prefetched command
+     * @return the output lines of the command
+     * @throws Exception in case the command failed
+     */
+    private static List<String> awaitPrefetchedCommand(ParameterPrefetcher.PrefetchedCommand prefetchedCommand) throws Exception {
+        try {
+            return prefetchedCommand.getOutput().get();
+        } catch (InterruptedException ex) {
+            // the keep execution was cancelled, so is the prefetched command
+            prefetchedCommand.getOutput().cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+    }
+
+    /**
+     * Will let the user choose a parameter value from the output of its command, while the command is still running.
+     *
+     * @param parameter         the {@code KeepParameter}
+     * @param parameterCommand  the submitted command of the parameter
+     * @return the chosen value, or null if the command failed
+     * @throws InterruptedException in case the keep execution was interrupted
+     */
+    private String chooseParameterCommandValue(KeepParameter parameter, ParameterCommand parameterCommand)
+            throws InterruptedException {
+        log.debug("Showing the user a dialog to choose a value for tha parameter [{}]", parameter);
+        String selectedParamValue = parameterCommand.getOptionsDialog().showAndWait();
+        throwIfAborted();
+
+        if (selectedParamValue == null && parameterCommand.getOptionsDialog().isFailed()) {
+            showParameterCommandError(parameter, parameterCommand.getOutput());
+            return null;
+        }
+
+        // the value may be chosen before the command completed, its remaining output is not needed
+        parameterCommand.getOutput().cancel(true);
+        log.debug("User selected the value [{}] for parameter [{}]", selectedParamValue, parameter);
+        if (StringUtils.isEmpty(selectedParamValue)) {
+            showMessageDialog(
+                    Application.getContext().getGui(),
+                    String.format(
+                            "Value for parameter \"%s\" is not set, cancelling processing the Keep",
+                            parameter.getName()),
+                    "Message",
+                    JOptionPane.INFORMATION_MESSAGE);
+            log.debug(
+                    "The user probably clicked on the cancel button on the dialog to choose a value "
+                            + "for the parameter [{}]", parameter);
+            throw new KeepParameterExecutionException("User cancelled");
+        }
+        return selectedParamValue;
+    }
+
+    /**
+     * Handles a state where the remaining parameters can never be resolved as they refer to each other.
+     *
+     * @param dependencyGraph the dependencies between the keep's parameters
+     * @return the exception to cancel the keep execution with
+     */
+    private KeepParameterExecutionException handleUnresolvableParameters(ParameterDependencyGraph dependencyGraph) {
+        Set<String> unresolvableParameters = dependencyGraph.findUnresolvableParameters();
+        showMessageDialog(
+                Application.getContext().getGui(),
+                String.format("Parameters %s refer to each other, cancelling processing the Keep", unresolvableParameters),
+                "Error when running a Keep",
+                JOptionPane.ERROR_MESSAGE);
+        return new KeepParameterExecutionException(
+                String.format("Parameters %s refer to each other", unresolvableParameters));
+    }
+
     /**
      * Setting resolved parameter values to the command to be executed.
      *
      * @param currentParameterValuesMap the map with resolved parameter values
-     * @param commandToExecute          the command to be executed
+     * @param commandTemplate           the parsed command to be executed
      * @return the final command to execute
      */
-    private static String setParametersValuesToCommand(Map<String, String> currentParameterValuesMap, String commandToExecute) {
-        for (Map.Entry<String, String> entry : currentParameterValuesMap.entrySet()) {
-            commandToExecute = commandToExecute.replace(String.format("<%s>", entry.getKey()), entry.getValue());
-        }
-        return commandToExecute;
+    private static String setParametersValuesToCommand(Map<String, String> currentParameterValuesMap, PhraseTemplate commandTemplate) {
+        return commandTemplate.render(currentParameterValuesMap);
     }
 
     /**
@@ -207,9 +603,9 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
      * @param currentlyActiveWindow the currently active window.
      * @return true if focused, false otherwise
      */
-    private static boolean isFocusOnActiveWindow(WindowInformation currentlyActiveWindow) {
+    private boolean isFocusOnActiveWindow(WindowInformation currentlyActiveWindow) {
         if (currentlyActiveWindow == null) {
-            JOptionPane.showMessageDialog(Application.getContext().getGui(),
+            showMessageDialog(Application.getContext().getGui(),
                     "Please select a window by clicking on it in order to run Keeps",
                     "No active window", JOptionPane.WARNING_MESSAGE);
             throw new KeepExecutionException("No active window is set");
@@ -243,8 +639,8 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
     /**
      * Handles a state where a different target window is the current active window than the one when keep execution started.
      */
-    private static void handleWrongTargetWindow() {
-        JOptionPane.showMessageDialog(Application.getContext().getGui(),
+    private void handleWrongTargetWindow() {
+        showMessageDialog(Application.getContext().getGui(),
                 "Seems like keepaste is not focused on the desired window, please try again...",
                 "Warning",
                 JOptionPane.WARNING_MESSAGE);
@@ -252,74 +648,79 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
     }
 
     /**
-     * Will manage a Keep parameter.
+     * Will ask the user for the value of a Keep parameter.
+     *
+     * @param parameter the {@code KeepParameter} to handle
+     * @return the value given to the parameter
+     * @throws InterruptedException in case the keep execution was interrupted
+     */
+    private String askForParameterValue(@NonNull final KeepParameter parameter) throws InterruptedException {
+        String selectedParamValue = null;
+        if (ParameterDependencyGraph.isCommandTypeParam(parameter)) {
+            selectedParamValue = chooseParameterCommandValue(parameter, parameterCommands.remove(parameter.getName()));
+        }
+        if (selectedParamValue == null) {
+            // an array or a free-text parameter, or the command failed and the user may still set a free-text value
+            selectedParamValue = resolveParameterValue(parameter, handleArrayTypeParamPhrase(parameter));
+        }
+        return validateParameterValue(parameter, selectedParamValue);
+    }
+
+    /**
+     * Will ask the user for a Keep parameter value.
      *
      * @param parameter                 the {@code KeepParameter} to handle
-     * @param keep                      the {@code Keep} in context
-     * @param isRefreshGlobalParameters         if to refresh the global parameters
-     * @param currentParameterValuesMap the current global parameters cache
+     * @param paramValues               the values to choose from, or null for a free-text parameter
+     * @return the value given by the user
      */
-    private void executeParameter(
+    private String resolveParameterValue(
             @NonNull final KeepParameter parameter,
-            @NonNull final Keep keep,
-            final boolean isRefreshGlobalParameters,
-            @NonNull final Map<String, String> currentParameterValuesMap) {
-
-        // in case of this is a global parameter, checking if the value already exist for it then setting it on the current param values map
-        takeParamValueFromGlobalMapIfExists(parameter, currentParameterValuesMap, isRefreshGlobalParameters);
-
-        // in case the value doesn't exist yet
-        if (!isParamValueAlreadyResolved(parameter, currentParameterValuesMap)) {
-
-            // Array-type parameter, getting values to choose from
-            List<String> paramValues = handleArrayTypeParamPhrase(parameter);
-
-            // Command-type parameter, getting values to choose from
-            if (paramValues == null) {
-                paramValues = handleCommandTypeParamPhrase(parameter, keep, currentParameterValuesMap, isRefreshGlobalParameters);
-            }
-
-            // a parameter to hold the resolved parameter value
-            String selectedParamValue;
+            final List<String> paramValues) {
+        // a parameter to hold the resolved parameter value
+        String selectedParamValue;
 
-            // if there are values to choose from
-            if (paramValues != null) {
-                // showing a dialog for the user to choose a resolved value from
-                selectedParamValue = displayParamValuesOptionsDialog(parameter, paramValues);
-                log.debug("Value of [{}] was chosen from an options dialog [{}]", selectedParamValue, parameter);
-            } else {
-                // free text parameter, ask the user for an input
-                log.debug("Parameter [{}] is of a free-text type", parameter);
-
-                selectedParamValue = JOptionPane.showInputDialog(
-                        Application.getContext().getGui().getContentPane(),
-                        String.format("Input a value for %s", parameter.getName()),
-                        "Set parameter value",
-                        JOptionPane.QUESTION_MESSAGE);
-                log.debug("Value of [{}] was set to free-text parameter [{}]", selectedParamValue, parameter);
-            }
+        // if there are values to choose from
+        if (paramValues != null) {
+            // showing a dialog for the user to choose a resolved value from
+            selectedParamValue = displayParamValuesOptionsDialog(parameter, paramValues);
+            log.debug("Value of [{}] was chosen from an options dialog [{}]", selectedParamValue, parameter);
+        } else {
+            // free text parameter, ask the user for an input
+            log.debug("Parameter [{}] is of a free-text type", parameter);
+
+            selectedParamValue = (String) showInputDialog(
+                    Application.getContext().getGui().getContentPane(),
+                    String.format("Input a value for %s", parameter.getName()),
+                    "Set parameter value",
+                    null);
+            log.debug("Value of [{}] was set to free-text parameter [{}]", selectedParamValue, parameter);
+        }
+        return selectedParamValue;
+    }
 
-            // in case no value was given from this parameter
-            if (StringUtils.isEmpty(selectedParamValue)) {
-                JOptionPane.showMessageDialog(
-                        Application.getContext().getGui(),
-                        String.format("Value for parameter \"%s\" is not set, cancelling processing the Keep",
-                                parameter.getName())
-                );
-                log.debug(
-                        "The user probably clicked on the cancel button on the dialog to set a free-text for "
-                                + "the parameter [{}]", parameter);
-                throw new KeepParameterExecutionException("User cancelled");
-            } else {
-                // if this parameter was given a resolved value
-                if (keep.getPhrase() != null && !StringUtils.isEmpty(selectedParamValue)) {
-                    // setting the value to the current resolved values map
-                    addParamValueToCurrentValuesMap(parameter, currentParameterValuesMap, selectedParamValue);
-                    // if it is a global parameter, adding it to the global parameters map as well
-                    addParamValueToGlobalValues(parameter, selectedParamValue);
-                }
-            }
+    /**
+     * Will validate the value given to a Keep parameter, or cancel the keep execution if no value was given.
+     *
+     * @param parameter                 the {@code KeepParameter}
+     * @param selectedParamValue        the value given to the parameter
+     * @return the value given to the parameter
+     */
+    private String validateParameterValue(KeepParameter parameter, String selectedParamValue) {
+        throwIfAborted();
+        // in case no value was given from this parameter
+        if (StringUtils.isEmpty(selectedParamValue)) {
+            showMessageDialog(
+                    Application.getContext().getGui(),
+                    String.format("Value for parameter \"%s\" is not set, cancelling processing the Keep",
+                            parameter.getName()),
+                    "Message",
+                    JOptionPane.INFORMATION_MESSAGE);
+            log.debug(
+                    "The user probably clicked on the cancel button on the dialog to set a free-text for "
+                            + "the parameter [{}]", parameter);
+            throw new KeepParameterExecutionException("User cancelled");
         }
+        return selectedParamValue;
     }
 
 
@@ -328,13 +729,11 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
      *
      * @param parameter                 the {@code KeepParameter}
      * @param currentParameterValuesMap the current parameter values map
-     * @param refreshParameters         if to refresh the global parameters
      */
     private void takeParamValueFromGlobalMapIfExists(KeepParameter parameter,
-                                                     Map<String, String> currentParameterValuesMap,
-                                                     boolean refreshParameters) {
-        // checking if we already have a value for this parameter on the global parameters (unless refresh parameters was chosen)
-        if (isParamGlobalValueSet(parameter, refreshParameters)) {
+                                                     Map<String, String> currentParameterValuesMap) {
+        // checking if we already have a value for this parameter on the global parameters
+        if (isParamGlobalValueSet(parameter)) {
             takeCurrentParamValueFromGlobal(parameter, currentParameterValuesMap);
         }
     }
@@ -361,11 +760,11 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
      * Will return true if a param has a resolved value on the global resolved values map.
      *
      * @param parameter         the {@code KeepParameter}
-     * @param refreshParameters if to refresh the global parameters
      * @return true if a param has a resolved value on the global resolved values map.
      */
-    private static boolean isParamGlobalValueSet(KeepParameter parameter, boolean refreshParameters) {
-        return !refreshParameters && parameter.isGlobal() && KeepExecutionManager.GLOBAL_PARAMETER_VALUES_MAP.containsKey(parameter.getName());
+    private static boolean isParamGlobalValueSet(KeepParameter parameter) {
+        return parameter.isGlobal()
+                && Application.getContext().getKeepExecutionManager().getGlobalParameterStore().contains(parameter.getName());
     }
 
     /**
@@ -376,7 +775,7 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
      */
     private static void takeCurrentParamValueFromGlobal(KeepParameter parameter, Map<String, String> currentParameterValuesMap) {
         String selectedParamValue;
-        selectedParamValue = KeepExecutionManager.GLOBAL_PARAMETER_VALUES_MAP.get(parameter.getName());
+        selectedParamValue = Application.getContext().getKeepExecutionManager().getGlobalParameterStore().get(parameter.getName());
         currentParameterValuesMap.put(parameter.getName(), selectedParamValue);
         log.debug("Parameter [{}] was taken from global parameters, selected value=[{}]", parameter, selectedParamValue);
     }
@@ -417,21 +816,6 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
         currentParameterValuesMap.put(parameter.getName(), value);
     }
 
-    /**
-     * Adds a resolved value to the global resolved values map.
-     *
-     * @param parameter                 the {@code KeepParameter}
-     * @param value        the resolved value
-     */
-    private static void addParamValueToGlobalValues(KeepParameter parameter, String value) {
-        if (parameter.isGlobal()) {
-            log.debug(
-                    "As it is set to be global, adding value of [{}] for parameter [{}] to the global "
-                            + "parameters values map", value, parameter);
-            KeepExecutionManager.GLOBAL_PARAMETER_VALUES_MAP.put(parameter.getName(), value);
-        }
-    }
-
     /**
      * Displays an options dialog for the user to choose a resolved value from.
      *
@@ -442,22 +826,21 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
     private String displayParamValuesOptionsDialog(KeepParameter parameter, List<String> valuesToChooseFrom) {
         String selectedParamValue;
         log.debug("Showing the user a dialog to choose a value for tha parameter [{}]", parameter);
-        selectedParamValue = (String) JOptionPane.showInputDialog(
+        selectedParamValue = (String) showInputDialog(
                 Application.getContext().getGui().getContentPane(),
                 String.format("Choose a value for %s", parameter.getName()),
                 "Set parameter value",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                parseToLineByLine(valuesToChooseFrom),
-                null);
+                parseToLineByLine(valuesToChooseFrom));
         log.debug("User selected the value [{}] for parameter [{}]", selectedParamValue, parameter);
+        throwIfAborted();
         if (StringUtils.isEmpty(selectedParamValue)) {
-            JOptionPane.showMessageDialog(
+            showMessageDialog(
                     Application.getContext().getGui(),
                     String.format(
                             "Value for parameter \"%s\" is not set, cancelling processing the Keep",
-                            parameter.getName())
-            );
+                            parameter.getName()),
+                    "Message",
+                    JOptionPane.INFORMATION_MESSAGE);
             log.debug(
                     "The user probably clicked on the cancel button on the dialog to choose a value "
                             + "for the parameter [{}]", parameter);
@@ -467,52 +850,26 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
     }
 
     /**
-     * Will execute the parameter command and return a list of values for the user to choose from.
+     * Will show the user why a parameter's command failed.
      *
-     * @param parameter                 the {@code KeepParameter}
-     * @param currentParameterValuesMap the currently resolved values map
-     * @return the selected value       if to refresh the global resolved values map
+     * @param parameter the {@code KeepParameter}
+     * @param output    the failed output of the parameter's command
+     * @throws InterruptedException in case the keep execution was interrupted
      */
-    private List<String> handleCommandTypeParamPhrase(
-            KeepParameter parameter, Keep keep, Map<String, String> currentParameterValuesMap, boolean isRefreshGlobalParameters) {
-        List<String> keepResult = null;
-
-        if (isNotFreeTextTypeParam(parameter)) {
-            try {
-                String paramKeepString = parameter.getPhrase();
-
-                log.debug("Parameter [{}] is of Command type, executing param command [{}]", parameter, paramKeepString);
-
-                // first setting all already resolved parameters values to the command of the param as it may use params as well
-                paramKeepString = setParametersValuesToCommand(currentParameterValuesMap, paramKeepString);
-
-                // checking if the param Keep uses parameters as well, and if so, executing those first
-                for (KeepParameter innerParameter : keep.getParameters()) {
-                    if (paramKeepString.contains(String.format("<%s>", innerParameter.getName()))) {
-                        // this parameter uses another one, so executing it first
-                        executeParameter(innerParameter, keep, isRefreshGlobalParameters, currentParameterValuesMap);
-                        paramKeepString = paramKeepString.replace(
-                                String.format("<%s>", innerParameter.getName()),
-                                currentParameterValuesMap.get(innerParameter.getName()));
-                    }
-                }
-
-                keepResult = Application.getContext().getKeepExecutionManager().executeCommand(paramKeepString);
-                log.debug("Parameter [{}], Keep result=[{}]", parameter, keepResult);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        Application.getContext().getGui().getContentPane(),
-                        String.format(
-                                "Failed to run Keep \"%s\" for parameter \"%s\". %s.",
-                                parameter.getPhrase(), parameter.getName(), e.getMessage()),
-                        "Error when running a Keep",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
+    private void showParameterCommandError(KeepParameter parameter, Future<List<String>> output)
+            throws InterruptedException {
+        try {
+            output.get();
+        } catch (ExecutionException e) {
+            showMessageDialog(
+                    Application.getContext().getGui().getContentPane(),
+                    String.format(
+                            "Failed to run Keep \"%s\" for parameter \"%s\". %s.",
+                            parameter.getPhrase(), parameter.getName(), e.getCause().getMessage()),
+                    "Error when running a Keep",
+                    JOptionPane.ERROR_MESSAGE
+            );
         }
-        return keepResult;
     }
 
 
@@ -544,4 +901,13 @@ public class KeepExecutionWorker extends SwingWorker<Void, String> {
         return stringToParse.toArray(new String[0]);
     }
 
+    /**
+     * This class is a submitted command of a parameter, along with the dialog to choose its value from.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class ParameterCommand {
+        private final Future<List<String>> output;
+        private final ViewParameterOptionsDialog optionsDialog;
+    }
 }
@@ -0,0 +1,419 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepsGroup;
+import com.keepaste.logic.utils.FileSystemUtils;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class keeps usage statistics of every executed Keep - how many times it ran, when it last ran and how long its
+ * parameters took to resolve - and ranks the Keeps by frecency, how often and how recently they ran.
+ * Each run adds a weight that halves every {@code HALF_LIFE_IN_MS}. The score is kept as the logarithm of the weights
+ * relative to a fixed epoch, so older scores never have to be decayed and a run updates its Keep's score at once.
+ * The statistics are written in the background to a compact binary file, and are matched back to the Keeps by their
+ * title and phrase.
+ */
+@Log4j2
+public final class KeepUsageStatistics {
+    public static final long WRITE_BEHIND_DELAY_IN_MS = 2000;
+    public static final long HALF_LIFE_IN_MS = TimeUnit.DAYS.toMillis(3);
+    public static final int MAX_PERSISTED_USAGES = 1000;
+
+    private static final int MAGIC = 0x4B505553;
+    private static final byte VERSION = 1;
+    private static final double LOG_WEIGHT_PER_MS = Math.log(2) / HALF_LIFE_IN_MS;
+
+    private final File usageFile;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            CommandExecutor.daemonThreadFactory("keepaste-keeps-usage-writer"));
+    // guarded by 'this'
+    private final Map<String, Usage> usagesByKey = new HashMap<>();
+    private final Map<Keep, Usage> usagesByKeep = new IdentityHashMap<>();
+    private ScheduledFuture<?> pendingWrite;
+
+    /**
+     * Constructor.
+     */
+    public KeepUsageStatistics() {
+        this(new File(FileSystemUtils.getKeepasteDirectory().concat("/keeps-usage.bin")));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param usageFile the file to persist the statistics to
+     */
+    public KeepUsageStatistics(@NonNull final File usageFile) {
+        this.usageFile = usageFile;
+        load();
+        // the last runs may still wait to be written when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "keepaste-keeps-usage-flush"));
+    }
+
+    /**
+     * Will match the Keeps of a tree, or of a part of it, to their statistics.
+     *
+     * @param keepNode the node to match, along with its child nodes
+     */
+    public synchronized void bind(@NonNull final KeepNode keepNode) {
+        forEachKeep(keepNode, this::bindKeep);
+    }
+
+    /**
+     * Will stop matching the Keeps of a tree, or of a part of it, to their statistics, as they are no longer part of
+     * the tree. The statistics are kept, in case the Keeps are added back.
+     *
+     * @param keepNode the removed node, along with its child nodes
+     */
+    public synchronized void unbind(@NonNull final KeepNode keepNode) {
+        forEachKeep(keepNode, keep -> {
+            Usage usage = usagesByKeep.remove(keep);
+            if (usage != null && usage.keep == keep) {
+                usage.keep = null;
+            }
+        });
+    }
+
+    /**
+     * Will stop matching all the Keeps to their statistics, before a new tree is loaded.
+     */
+    public synchronized void unbindAll() {
+        usagesByKeep.values().forEach(usage -> usage.keep = null);
+        usagesByKeep.clear();
+    }
+
+    /**
+     * Will move the statistics of changed Keeps to their new title and phrase.
+     * Keeps that are not matched to statistics, like new Keeps not added to the tree yet, are ignored.
+     *
+     * @param keepNode the changed node, along with its child nodes
+     */
+    public synchronized void updated(@NonNull final KeepNode keepNode) {
+        forEachKeep(keepNode, keep -> {
+            Usage usage = usagesByKeep.get(keep);
+            String key = getKey(keep);
+            if (usage == null || usage.key.equals(key)) {
+                return;
+            }
+            usagesByKey.remove(usage.key);
+            Usage existingUsage = usagesByKey.get(key);
+            if (existingUsage != null) {
+                // another Keep with the same title and phrase was used before, both are the same Keep from now on
+                existingUsage.merge(usage);
+                usage = existingUsage;
+            } else {
+                usage = usage.withKey(key);
+                usagesByKey.put(key, usage);
+            }
+            bindKeep(keep, usage);
+            scheduleWrite();
+        });
+    }
+
+    /**
+     * Will record that a Keep was run.
+     *
+     * @param keep                          the run {@code Keep}
+     * @param parametersResolutionInMs      the time its parameters took to resolve, or a negative value if it has none
+     */
+    public synchronized void recordRun(@NonNull final Keep keep, final long parametersResolutionInMs) {
+        Usage usage = usagesByKeep.get(keep);
+        if (usage == null) {
+            String key = getKey(keep);
+            usage = usagesByKey.computeIfAbsent(key, Usage::new);
+            bindKeep(keep, usage);
+        }
+        usage.recordRun(System.currentTimeMillis(), parametersResolutionInMs);
+        scheduleWrite();
+    }
+
+    /**
+     * Will return the statistics of a Keep.
+     *
+     * @param keep the {@code Keep}
+     * @return the statistics of the Keep, or null if it was never run
+     */
+    public synchronized Usage getUsage(@NonNull final Keep keep) {
+        Usage usage = usagesByKeep.get(keep);
+        return usage == null ? null : usage.copy();
+    }
+
+    /**
+     * Will return the Keeps of the tree that were run, the most frecent first.
+     *
+     * @param limit the maximum number of Keeps to return
+     * @return the most frecent Keeps
+     */
+    public synchronized List<Keep> getTopKeeps(final int limit) {
+        List<Usage> usages = new ArrayList<>(usagesByKeep.values());
+        usages.sort(Comparator.comparingDouble((Usage usage) -> usage.logScore).reversed());
+        List<Keep> topKeeps = new ArrayList<>(Math.min(limit, usages.size()));
+        for (int i = 0; i < usages.size() && topKeeps.size() < limit; i++) {
+            topKeeps.add(usages.get(i).keep);
+        }
+        return topKeeps;
+    }
+
+    /**
+     * Will write the statistics that are waiting to be persisted now.
+     */
+    public synchronized void flush() {
+        if (pendingWrite != null) {
+            pendingWrite.cancel(false);
+            pendingWrite = null;
+            write(copyUsages());
+        }
+    }
+
+    private void bindKeep(Keep keep) {
+        Usage usage = usagesByKey.get(getKey(keep));
+        if (usage != null) {
+            bindKeep(keep, usage);
+        }
+    }
+
+    private void bindKeep(Keep keep, Usage usage) {
+        Usage previousUsage = usagesByKeep.put(keep, usage);
+        if (previousUsage != null && previousUsage != usage && previousUsage.keep == keep) {
+            previousUsage.keep = null;
+        }
+        // Keeps with the same title and phrase share their statistics, the last one bound is the one ranked
+        if (usage.keep != null && usage.keep != keep) {
+            usagesByKeep.remove(usage.keep);
+        }
+        usage.keep = keep;
+    }
+
+    private void scheduleWrite() {
+        // runs recorded until the write takes place are written together
+        if (pendingWrite == null) {
+            pendingWrite = writer.schedule(this::writePending, WRITE_BEHIND_DELAY_IN_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePending() {
+        List<Usage> usages;
+        synchronized (this) {
+            if (pendingWrite == null) {
+                return;
+            }
+            pendingWrite = null;
+            usages = copyUsages();
+        }
+        write(usages);
+    }
+
+    private List<Usage> copyUsages() {
+        List<Usage> usages = new ArrayList<>(usagesByKey.size());
+        usagesByKey.values().forEach(usage -> usages.add(usage.copy()));
+        return usages;
+    }
+
+    private void write(List<Usage> usages) {
+        if (usages.size() > MAX_PERSISTED_USAGES) {
+            // the least frecent Keeps are forgotten, whatever is left of them is too light to rank anyway
+            usages.sort(Comparator.comparingDouble((Usage usage) -> usage.logScore).reversed());
+            usages = usages.subList(0, MAX_PERSISTED_USAGES);
+        }
+        Path usagePath = usageFile.toPath();
+        Path tempPath = usagePath.resolveSibling(usageFile.getName().concat(".tmp"));
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempPath))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(usages.size());
+                for (Usage usage : usages) {
+                    byte[] key = usage.key.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeInt(usage.runCount);
+                    out.writeLong(usage.lastRunAt);
+                    out.writeInt(usage.parametersResolutionCount);
+                    out.writeLong(usage.totalParametersResolutionInMs);
+                    out.writeDouble(usage.logScore);
+                }
+            }
+            // replacing the file at once, so a crash while writing never leaves a partially written file
+            Files.move(tempPath, usagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Usage statistics of [{}] Keeps written to file [{}]", usages.size(), usageFile);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to write the Keeps usage statistics to file [%s]", usageFile), ex);
+        }
+    }
+
+    private synchronized void load() {
+        if (!usageFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(usageFile.toPath()))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                log.warn("Ignoring the Keeps usage statistics file [{}] of an unknown format", usageFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                Usage usage = new Usage(new String(key, StandardCharsets.UTF_8));
+                usage.runCount = in.readInt();
+                usage.lastRunAt = in.readLong();
+                usage.parametersResolutionCount = in.readInt();
+                usage.totalParametersResolutionInMs = in.readLong();
+                usage.logScore = in.readDouble();
+                usagesByKey.put(usage.key, usage);
+            }
+            log.debug("Loaded usage statistics of [{}] Keeps from file [{}]", count, usageFile);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to load the Keeps usage statistics from file [%s]", usageFile), ex);
+            usagesByKey.clear();
+        }
+    }
+
+    private static String getKey(Keep keep) {
+        return String.valueOf(keep.getTitle()).concat("\u0000").concat(String.valueOf(keep.getPhrase()));
+    }
+
+    private static void forEachKeep(KeepNode keepNode, Consumer<Keep> consumer) {
+        Deque<KeepNode> keepNodes = new ArrayDeque<>();
+        keepNodes.push(keepNode);
+        while (!keepNodes.isEmpty()) {
+            KeepNode current = keepNodes.pop();
+            if (current instanceof Keep) {
+                consumer.accept((Keep) current);
+            } else if (current instanceof KeepsGroup && ((KeepsGroup) current).getKeepsNodes() != null) {
+                ((KeepsGroup) current).getKeepsNodes().forEach(keepNodes::push);
+            }
+        }
+    }
+
+    /**
+     * This class holds the usage statistics of a single Keep.
+     */
+    public static final class Usage {
+        private final String key;
+        private int runCount;
+        private long lastRunAt;
+        private int parametersResolutionCount;
+        private long totalParametersResolutionInMs;
+        private double logScore = Double.NEGATIVE_INFINITY;
+        // the Keep of the tree the statistics are matched to, if any
+        private Keep keep;
+
+        private Usage(String key) {
+            this.key = key;
+        }
+
+        private void recordRun(long runAt, long parametersResolutionInMs) {
+            runCount++;
+            lastRunAt = Math.max(lastRunAt, runAt);
+            if (parametersResolutionInMs >= 0) {
+                parametersResolutionCount++;
+                totalParametersResolutionInMs += parametersResolutionInMs;
+            }
+            logScore = logSumExp(logScore, runAt * LOG_WEIGHT_PER_MS);
+        }
+
+        private void merge(Usage usage) {
+            runCount += usage.runCount;
+            lastRunAt = Math.max(lastRunAt, usage.lastRunAt);
+            parametersResolutionCount += usage.parametersResolutionCount;
+            totalParametersResolutionInMs += usage.totalParametersResolutionInMs;
+            logScore = logSumExp(logScore, usage.logScore);
+        }
+
+        private Usage withKey(String newKey) {
+            Usage usage = new Usage(newKey);
+            usage.merge(this);
+            return usage;
+        }
+
+        private Usage copy() {
+            return withKey(key);
+        }
+
+        private static double logSumExp(double a, double b) {
+            if (a == Double.NEGATIVE_INFINITY) {
+                return b;
+            }
+            if (b == Double.NEGATIVE_INFINITY) {
+                return a;
+            }
+            // adding the weights without ever computing them, they are far too large to be held as doubles
+            return Math.max(a, b) + Math.log1p(Math.exp(-Math.abs(a - b)));
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public long getLastRunAt() {
+            return lastRunAt;
+        }
+
+        /**
+         * Will return the average time the Keep's parameters took to resolve.
+         *
+         * @return the average time in milliseconds, or -1 if its parameters were never resolved
+         */
+        public long getAverageParametersResolutionInMs() {
+            return parametersResolutionCount == 0 ? -1 : totalParametersResolutionInMs / parametersResolutionCount;
+        }
+
+        /**
+         * Will return the frecency score of the Keep, comparable between Keeps regardless of when it was computed.
+         *
+         * @return the frecency score
+         */
+        public double getLogScore() {
+            return logScore;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("runCount=%d, lastRunAt=%d, averageParametersResolutionInMs=%d",
+                    getRunCount(), getLastRunAt(), getAverageParametersResolutionInMs());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.managers.command.CommandExecutor;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class watches keepaste's directory for files changed by anyone else, like a configuration management tool, and
+ * notifies on them once they stopped changing for a while, as a file is usually written in several steps.
+ * Notifications are made on a background thread, and also for changes made by keepaste itself, so it is up to each
+ * listener to tell them apart.
+ */
+@Log4j2
+public final class KeepasteFilesWatcher {
+    public static final long DEBOUNCE_DELAY_IN_MS = 500;
+
+    private final Path directory;
+    private final Map<String, Runnable> listeners = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> pendingNotifications = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService notifier = Executors.newSingleThreadScheduledExecutor(
+            CommandExecutor.daemonThreadFactory("keepaste-files-watcher-notifier"));
+
+    /**
+     * Constructor.
+     *
+     * @param directory the directory to watch
+     */
+    public KeepasteFilesWatcher(@NonNull final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Will listen on changes to a file in the directory.
+     *
+     * @param fileName  the name of the file
+     * @param listener  called on a background thread once the file was changed
+     * @return this watcher
+     */
+    public KeepasteFilesWatcher onChange(@NonNull final String fileName, @NonNull final Runnable listener) {
+        listeners.put(fileName, listener);
+        return this;
+    }
+
+    /**
+     * Will start watching the directory in the background.
+     */
+    public void start() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to watch directory [%s] for changes", directory), ex);
+            return;
+        }
+        Thread watcherThread = CommandExecutor.daemonThreadFactory("keepaste-files-watcher")
+                .newThread(() -> watch(watchService));
+        watcherThread.start();
+        log.info("Watching directory [{}] for changes of files {}", directory, listeners.keySet());
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey watchKey = watchService.take();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                        scheduleNotification(((Path) event.context()).getFileName().toString());
+                    }
+                }
+                if (!watchKey.reset()) {
+                    log.warn("Directory [{}] is no longer watched for changes", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            log.debug("Stopped watching directory [{}]", directory);
+        }
+    }
+
+    private void scheduleNotification(String fileName) {
+        Runnable listener = listeners.get(fileName);
+        if (listener == null) {
+            return;
+        }
+        // every change postpones the notification, so it is made once the file stopped changing
+        pendingNotifications.compute(fileName, (name, pendingNotification) -> {
+            if (pendingNotification != null) {
+                pendingNotification.cancel(false);
+            }
+            return notifier.schedule(() -> notify(name, listener), DEBOUNCE_DELAY_IN_MS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void notify(String fileName, Runnable listener) {
+        try {
+            log.debug("File [{}] was changed", fileName);
+            listener.run();
+        } catch (RuntimeException ex) {
+            log.error(String.format("Failed to handle the change of file [%s]", fileName), ex);
+        }
+    }
+}
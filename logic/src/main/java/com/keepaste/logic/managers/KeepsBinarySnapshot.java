@@ -0,0 +1,324 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepParameter;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a compact binary copy of the keeps file, loaded instead of parsing the JSON on startup.
+ * Every string is written once and referred to by its index, and so is every distinct parameter, so parameters shared
+ * by several Keeps are written once as well.
+ * The copy records the size and modification time of the keeps file it was made from, along with a checksum of its
+ * content, and it is ignored once the keeps file was changed by anyone else or if it is corrupted. The keeps file stays
+ * the format to export and edit the Keeps with.
+ */
+@Log4j2
+public final class KeepsBinarySnapshot {
+    private static final int MAGIC = 0x4B505342;
+    private static final byte VERSION = 1;
+    private static final byte GROUP = 1;
+    private static final byte KEEP = 2;
+    private static final int NULL_INDEX = -1;
+
+    private final File binaryFile;
+    private final File sourceFile;
+
+    /**
+     * Constructor.
+     *
+     * @param binaryFile    the file to write the binary copy to
+     * @param sourceFile    the keeps file the binary copy is made from
+     */
+    public KeepsBinarySnapshot(@NonNull final File binaryFile, @NonNull final File sourceFile) {
+        this.binaryFile = binaryFile;
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * Will write a binary copy of the Keeps tree, once the keeps file was written with the same tree.
+     * Nodes with icons cannot be written, in which case the binary copy is deleted and the keeps file is loaded instead.
+     *
+     * @param root              the root node of the tree
+     * @param journalSequence   the last journal record the tree holds
+     */
+    public void write(@NonNull final KeepsGroup root, final long journalSequence) {
+        Path binaryPath = binaryFile.toPath();
+        try {
+            byte[] payload = new Encoder().encode(root);
+            if (payload == null) {
+                log.debug("Keeps with icons are not written to the binary snapshot [{}]", binaryFile);
+                Files.deleteIfExists(binaryPath);
+                return;
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(payload);
+
+            Path tempPath = binaryPath.resolveSibling(binaryFile.getName().concat(".tmp"));
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempPath))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(sourceFile.length());
+                out.writeLong(sourceFile.lastModified());
+                out.writeLong(journalSequence);
+                out.writeInt(payload.length);
+                out.write(payload);
+                out.writeLong(checksum.getValue());
+            }
+            Files.move(tempPath, binaryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote the binary snapshot [{}] of [{}] bytes", binaryFile, payload.length);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to write the binary snapshot [%s]", binaryFile), ex);
+        }
+    }
+
+    /**
+     * Will read the binary copy of the Keeps tree.
+     *
+     * @return the binary copy, or null if it is missing, does not match the keeps file or is corrupted
+     */
+    public Snapshot read() {
+        if (!binaryFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(binaryFile.toPath()))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                log.warn("Ignoring the binary snapshot [{}] of an unknown format", binaryFile);
+                return null;
+            }
+            if (in.readLong() != sourceFile.length() || in.readLong() != sourceFile.lastModified()) {
+                log.info("Ignoring the binary snapshot [{}] as [{}] was changed since", binaryFile, sourceFile);
+                return null;
+            }
+            long journalSequence = in.readLong();
+            int payloadLength = in.readInt();
+            if (payloadLength < 0 || payloadLength > binaryFile.length()) {
+                log.warn("Ignoring the corrupted binary snapshot [{}]", binaryFile);
+                return null;
+            }
+            byte[] payload = new byte[payloadLength];
+            in.readFully(payload);
+            CRC32 checksum = new CRC32();
+            checksum.update(payload);
+            if (in.readLong() != checksum.getValue()) {
+                log.warn("Ignoring the binary snapshot [{}] as its checksum does not match", binaryFile);
+                return null;
+            }
+            return new Snapshot(journalSequence, payload);
+        } catch (IOException ex) {
+            log.warn(String.format("Ignoring the unreadable binary snapshot [%s]", binaryFile), ex);
+            return null;
+        }
+    }
+
+    /**
+     * This class is a validated binary copy of the Keeps tree.
+     */
+    public static final class Snapshot {
+        private final long journalSequence;
+        private final byte[] payload;
+
+        private Snapshot(long journalSequence, byte[] payload) {
+            this.journalSequence = journalSequence;
+            this.payload = payload;
+        }
+
+        public long getJournalSequence() {
+            return journalSequence;
+        }
+
+        /**
+         * Will build a new tree out of the binary copy, every call builds a tree of its own.
+         *
+         * @return the root node of the tree
+         * @throws IOException in case the binary copy could not be decoded
+         */
+        public KeepsGroup toTree() throws IOException {
+            return new Decoder(payload).decode();
+        }
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<List<Object>, Integer> parameters = new LinkedHashMap<>();
+        private final ByteArrayOutputStream nodesBytes = new ByteArrayOutputStream();
+        private final DataOutputStream nodes = new DataOutputStream(nodesBytes);
+
+        private byte[] encode(KeepsGroup root) throws IOException {
+            if (!writeNode(root)) {
+                return null;
+            }
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(nodesBytes.size() * 2);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(parameters.size());
+            for (List<Object> parameter : parameters.keySet()) {
+                out.writeInt(indexOf((String) parameter.get(0)));
+                out.writeInt(indexOf((String) parameter.get(1)));
+                out.writeBoolean((boolean) parameter.get(2));
+                out.writeInt((int) parameter.get(3));
+            }
+            nodesBytes.writeTo(out);
+            out.flush();
+            return payload.toByteArray();
+        }
+
+        private boolean writeNode(KeepNode node) throws IOException {
+            if (node.getIcon() != null) {
+                return false;
+            }
+            if (node instanceof KeepsGroup) {
+                nodes.writeByte(GROUP);
+                nodes.writeInt(indexOf(node.getTitle()));
+                List<KeepNode> children = ((KeepsGroup) node).getKeepsNodes();
+                nodes.writeInt(children.size());
+                for (KeepNode child : children) {
+                    if (!writeNode(child)) {
+                        return false;
+                    }
+                }
+            } else {
+                Keep keep = (Keep) node;
+                nodes.writeByte(KEEP);
+                nodes.writeInt(indexOf(keep.getTitle()));
+                nodes.writeInt(indexOf(keep.getPhrase()));
+                nodes.writeInt(indexOf(keep.getDescription()));
+                nodes.writeBoolean(keep.isNeverPressEnter());
+                List<KeepParameter> keepParameters = keep.getParameters();
+                nodes.writeInt(keepParameters == null ? NULL_INDEX : keepParameters.size());
+                if (keepParameters != null) {
+                    for (KeepParameter parameter : keepParameters) {
+                        List<Object> key = Arrays.asList(parameter.getName(), parameter.getPhrase(),
+                                parameter.isGlobal(), parameter.getCacheTtlSeconds());
+                        // the strings of a parameter are indexed when the parameter is first seen
+                        indexOf(parameter.getName());
+                        indexOf(parameter.getPhrase());
+                        nodes.writeInt(parameters.computeIfAbsent(key, k -> parameters.size()));
+                    }
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(String string) {
+            return string == null ? NULL_INDEX : strings.computeIfAbsent(string, key -> strings.size());
+        }
+    }
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private String[] strings;
+        private KeepParameter[] parameters;
+
+        private Decoder(byte[] payload) {
+            this.in = new DataInputStream(new ByteArrayInputStream(payload));
+        }
+
+        private KeepsGroup decode() throws IOException {
+            strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            parameters = new KeepParameter[in.readInt()];
+            for (int i = 0; i < parameters.length; i++) {
+                KeepParameter parameter = new KeepParameter();
+                parameter.setName(string(in.readInt()));
+                parameter.setPhrase(string(in.readInt()));
+                parameter.setGlobal(in.readBoolean());
+                parameter.setCacheTtlSeconds(in.readInt());
+                parameters[i] = parameter;
+            }
+            KeepNode root = readNode();
+            if (!(root instanceof KeepsGroup)) {
+                throw new IOException("The root node of the binary snapshot is not a group");
+            }
+            return (KeepsGroup) root;
+        }
+
+        private KeepNode readNode() throws IOException {
+            byte kind = in.readByte();
+            if (kind == GROUP) {
+                KeepsGroup group = new KeepsGroup(string(in.readInt()));
+                int childrenCount = in.readInt();
+                List<KeepNode> children = new ArrayList<>(childrenCount);
+                for (int i = 0; i < childrenCount; i++) {
+                    children.add(readNode());
+                }
+                group.setKeepsNodes(children);
+                return group;
+            }
+            if (kind == KEEP) {
+                Keep keep = new Keep(string(in.readInt()), string(in.readInt()));
+                keep.setDescription(string(in.readInt()));
+                keep.setNeverPressEnter(in.readBoolean());
+                int parametersCount = in.readInt();
+                if (parametersCount != NULL_INDEX) {
+                    List<KeepParameter> keepParameters = new ArrayList<>(parametersCount);
+                    for (int i = 0; i < parametersCount; i++) {
+                        keepParameters.add(copyOf(parameters[in.readInt()]));
+                    }
+                    keep.setParameters(keepParameters);
+                }
+                return keep;
+            }
+            throw new IOException(String.format("Unknown node kind [%d] in the binary snapshot", kind));
+        }
+
+        private String string(int index) {
+            return index == NULL_INDEX ? null : strings[index];
+        }
+
+        private static KeepParameter copyOf(KeepParameter parameter) {
+            // every Keep gets parameters of its own, as they are edited per Keep
+            KeepParameter copy = new KeepParameter();
+            copy.setName(parameter.getName());
+            copy.setPhrase(parameter.getPhrase());
+            copy.setGlobal(parameter.isGlobal());
+            copy.setCacheTtlSeconds(parameter.getCacheTtlSeconds());
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,565 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class persists the changes made to the Keeps tree as an append-only journal of records, instead of writing the
+ * whole tree on every change.
+ * The journal is written and synced to the disk in the background - records made in a burst, like importing or moving
+ * Keeps, are coalesced and written at once, so the GUI never waits for the disk. Once enough records were written, they
+ * are compacted into a new snapshot of the tree (the keeps file) and the journal starts over.
+ * The background writer keeps its own copy of the tree by applying the written records to it, so compacting never
+ * reads the tree that is being changed by the GUI.
+ * On load, the records that were not compacted yet, as after a crash, are replayed over the last snapshot.
+ * Every snapshot is also written in a binary format, which is loaded instead of parsing the snapshot when it is valid.
+ * A snapshot written by anyone else, like a configuration management tool, replaces the tree and the journal.
+ */
+@Log4j2
+public final class KeepsJournal {
+    public static final int COMPACT_AFTER_RECORDS = 500;
+    public static final long COALESCE_DELAY_IN_MS = 200;
+    public static final long FLUSH_TIMEOUT_IN_SECONDS = 10;
+    private static final String SEQUENCE_FIELD = "journalSequence";
+
+    private final ObjectMapper objectMapper;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File backupFile;
+    private final KeepsBinarySnapshot binarySnapshot;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            CommandExecutor.daemonThreadFactory("keepaste-keeps-journal"));
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final Queue<PendingRecord> pendingRecords = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isWriteScheduled = new AtomicBoolean();
+    @Getter
+    private final KeepsPersistenceMetrics keepsPersistenceMetrics = new KeepsPersistenceMetrics();
+
+    // accessed by the writer thread only
+    private KeepsGroup compactedRoot;
+    private FileChannel journalChannel;
+    private int recordsSinceCompaction;
+    // the sequence of the last record applied to the writer's copy of the tree, which a snapshot of it holds
+    private long appliedSequence;
+    // the size and modification time of the snapshot as last read or written by this journal
+    private volatile long knownSnapshotLength;
+    private volatile long knownSnapshotLastModified;
+
+    /**
+     * Constructor.
+     *
+     * @param objectMapper  the mapper to read and write the Keeps with
+     * @param snapshotFile  the keeps file, holding the whole tree
+     * @param journalFile   the file to append the changes to
+     * @param backupFile    the file to keep the previous snapshot in
+     * @param binaryFile    the file to keep the binary copy of the snapshot in
+     */
+    public KeepsJournal(@NonNull final ObjectMapper objectMapper,
+                        @NonNull final File snapshotFile,
+                        @NonNull final File journalFile,
+                        @NonNull final File backupFile,
+                        @NonNull final File binaryFile) {
+        this.objectMapper = objectMapper;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.backupFile = backupFile;
+        this.binarySnapshot = new KeepsBinarySnapshot(binaryFile, snapshotFile);
+        // the last records may still wait to be written when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "keepaste-keeps-journal-flush"));
+    }
+
+    /**
+     * Will load the Keeps tree from the last snapshot and replay the journal over it.
+     * The writer's copy of the tree is loaded in the background, where the replayed records are compacted into a new
+     * snapshot, so loading never waits for either.
+     *
+     * @return the root node of the tree
+     * @throws IOException in case the snapshot could not be read
+     */
+    public KeepsGroup load() throws IOException {
+        long startedAt = System.currentTimeMillis();
+        rememberSnapshotState();
+        KeepsBinarySnapshot.Snapshot binary = binarySnapshot.read();
+        JsonNode snapshot = binary == null ? objectMapper.readTree(snapshotFile) : null;
+        long snapshotSequence = binary != null ? binary.getJournalSequence() : snapshot.path(SEQUENCE_FIELD).asLong(0);
+        lastSequence.set(snapshotSequence);
+
+        KeepsGroup root = binary != null ? binary.toTree() : objectMapper.treeToValue(snapshot, KeepsGroup.class);
+        int replayedRecords = replay(root, snapshotSequence);
+        log.info("Loaded keeps from [{}] in [{}]ms, replayed [{}] journal records",
+                binary != null ? "binary snapshot" : snapshotFile, System.currentTimeMillis() - startedAt, replayedRecords);
+
+        // the writer keeps its own copy of the tree to compact from, loaded before it applies any record made from now on
+        long replayedSequence = lastSequence.get();
+        writer.execute(() -> {
+            try {
+                KeepsGroup writerRoot = binary != null ? binary.toTree() : objectMapper.treeToValue(snapshot, KeepsGroup.class);
+                replay(writerRoot, snapshotSequence);
+                compactedRoot = writerRoot;
+                appliedSequence = replayedSequence;
+                recordsSinceCompaction = replayedRecords;
+                if (replayedRecords > 0) {
+                    compact();
+                } else if (binary == null) {
+                    // the keeps file was changed by anyone else, or the binary copy was not written yet
+                    binarySnapshot.write(compactedRoot, snapshotSequence);
+                }
+            } catch (IOException | RuntimeException ex) {
+                log.error(String.format("Failed to load the keeps journal writer's copy of [%s]", snapshotFile), ex);
+            }
+        });
+        return root;
+    }
+
+    /**
+     * Will return true if the snapshot was written by anyone else since it was last read or written by this journal.
+     *
+     * @return true if the snapshot was changed externally
+     */
+    public boolean isSnapshotChangedExternally() {
+        return snapshotFile.length() != knownSnapshotLength || snapshotFile.lastModified() != knownSnapshotLastModified;
+    }
+
+    /**
+     * Will read the snapshot as it was written by anyone else.
+     * The snapshot is parsed on the calling thread, and is used only once passed to {@link #replaceSnapshot}.
+     *
+     * @return the snapshot that was read
+     * @throws IOException in case the snapshot could not be read
+     */
+    public ExternalSnapshot readExternalSnapshot() throws IOException {
+        long length = snapshotFile.length();
+        long lastModified = snapshotFile.lastModified();
+        JsonNode snapshot = objectMapper.readTree(snapshotFile);
+        return new ExternalSnapshot(
+                snapshot.path(SEQUENCE_FIELD).asLong(0),
+                objectMapper.treeToValue(snapshot, KeepsGroup.class),
+                objectMapper.treeToValue(snapshot, KeepsGroup.class),
+                length,
+                lastModified);
+    }
+
+    /**
+     * Will replace the tree with a snapshot written by anyone else.
+     * The records that were not written yet and the journal are dropped, as the snapshot takes precedence over them.
+     * Must be called on the thread changing the tree, once the tree was changed to match the snapshot.
+     *
+     * @param externalSnapshot the snapshot read by {@link #readExternalSnapshot}
+     * @throws IOException in case the journal could not be cleared
+     */
+    public void replaceSnapshot(@NonNull final ExternalSnapshot externalSnapshot) throws IOException {
+        runOnWriter(() -> {
+            int droppedRecords = pendingRecords.size() + recordsSinceCompaction;
+            pendingRecords.clear();
+            if (journalChannel != null) {
+                journalChannel.truncate(0);
+                journalChannel.force(true);
+            } else {
+                Files.deleteIfExists(journalFile.toPath());
+            }
+            compactedRoot = externalSnapshot.writerRoot;
+            appliedSequence = externalSnapshot.sequence;
+            recordsSinceCompaction = 0;
+            // records made from now on must be replayed over the snapshot
+            lastSequence.accumulateAndGet(externalSnapshot.sequence, Math::max);
+            knownSnapshotLength = externalSnapshot.length;
+            knownSnapshotLastModified = externalSnapshot.lastModified;
+            binarySnapshot.write(compactedRoot, externalSnapshot.sequence);
+            log.info("Replaced the keeps tree with [{}] written externally, dropped [{}] journal records",
+                    snapshotFile, droppedRecords);
+        });
+    }
+
+    /**
+     * Will return the number of changes that were not compacted into the snapshot yet, including the ones not written
+     * yet. These are the changes that replacing the snapshot drops.
+     *
+     * @return the number of changes that were not compacted into the snapshot yet
+     * @throws IOException in case the writer did not respond
+     */
+    public int getUncompactedRecordsCount() throws IOException {
+        int[] uncompactedRecordsCount = new int[1];
+        runOnWriter(() -> uncompactedRecordsCount[0] = pendingRecords.size() + recordsSinceCompaction);
+        return uncompactedRecordsCount[0];
+    }
+
+    /**
+     * Will write the tree over a snapshot written by anyone else, keeping the changes that were not compacted yet.
+     *
+     * @throws IOException in case the snapshot could not be written
+     */
+    public void overwriteSnapshot() throws IOException {
+        runOnWriter(() -> {
+            writePending();
+            compact();
+            log.info("Wrote the keeps tree over [{}] written externally", snapshotFile);
+        });
+    }
+
+    /**
+     * Will record that a node was added to the tree.
+     *
+     * @param path      the path of the added node
+     * @param keepNode  the added node
+     */
+    public void recordAdded(@NonNull final int[] path, @NonNull final KeepNode keepNode) {
+        append(new Record(0, Record.Type.ADD, path, null, keepNode));
+    }
+
+    /**
+     * Will record that a node was removed from the tree.
+     *
+     * @param path the path the removed node had
+     */
+    public void recordRemoved(@NonNull final int[] path) {
+        append(new Record(0, Record.Type.REMOVE, path, null, null));
+    }
+
+    /**
+     * Will record that a node was edited.
+     * For a group only its own details are recorded, not its child nodes.
+     *
+     * @param path      the path of the edited node
+     * @param keepNode  the edited node
+     */
+    public void recordUpdated(@NonNull final int[] path, @NonNull final KeepNode keepNode) {
+        KeepNode updatedNode = keepNode instanceof KeepsGroup
+                ? new KeepsGroup(keepNode.getTitle(), keepNode.getIcon())
+                : keepNode;
+        append(new Record(0, Record.Type.UPDATE, path, null, updatedNode));
+    }
+
+    /**
+     * Will record that a node was moved to the end of another group.
+     *
+     * @param path              the path the node had before it was moved
+     * @param targetGroupPath   the path of the group the node was moved to, once the node was removed from its place
+     */
+    public void recordMoved(@NonNull final int[] path, @NonNull final int[] targetGroupPath) {
+        append(new Record(0, Record.Type.MOVE, path, targetGroupPath, null));
+    }
+
+    /**
+     * Will record that the child nodes of a group were sorted, along with the child nodes of its child groups.
+     *
+     * @param path the path of the sorted group, empty for the root node
+     */
+    public void recordSorted(@NonNull final int[] path) {
+        append(new Record(0, Record.Type.SORT, path, null, null));
+    }
+
+    /**
+     * Will wait for all the records to be written and synced to the disk.
+     */
+    public void flush() {
+        try {
+            runOnWriter(this::writePending);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to flush the keeps journal [%s]", journalFile), ex);
+        }
+    }
+
+    private void append(Record record) {
+        // the records are queued in the order of their sequences, so they are applied and written in that order
+        synchronized (pendingRecords) {
+            record.setSequence(lastSequence.incrementAndGet());
+            String line;
+            try {
+                // serializing on the calling thread, as the nodes may be changed once this method returns
+                line = objectMapper.writeValueAsString(record).concat(System.lineSeparator());
+            } catch (IOException ex) {
+                log.error(String.format("Failed to serialize keeps journal record [%s]", record.getType()), ex);
+                return;
+            }
+            pendingRecords.add(new PendingRecord(line, System.nanoTime()));
+        }
+        keepsPersistenceMetrics.recordRequested();
+        // the records made until the write takes place are written along with this one
+        if (isWriteScheduled.compareAndSet(false, true)) {
+            writer.schedule(this::writePendingQuietly, COALESCE_DELAY_IN_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePendingQuietly() {
+        try {
+            writePending();
+        } catch (IOException | RuntimeException ex) {
+            log.error(String.format("Failed to write to the keeps journal [%s]", journalFile), ex);
+        }
+    }
+
+    private void writePending() throws IOException {
+        isWriteScheduled.set(false);
+        List<PendingRecord> records = new ArrayList<>();
+        StringBuilder lines = new StringBuilder();
+        PendingRecord pendingRecord;
+        while ((pendingRecord = pendingRecords.poll()) != null) {
+            records.add(pendingRecord);
+            lines.append(pendingRecord.line);
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        if (journalChannel == null) {
+            journalChannel = FileChannel.open(journalFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journalChannel.write(buffer);
+        }
+        for (PendingRecord writtenRecord : records) {
+            Record record = objectMapper.readValue(writtenRecord.line, Record.class);
+            apply(compactedRoot, record);
+            appliedSequence = record.getSequence();
+        }
+
+        recordsSinceCompaction += records.size();
+        if (recordsSinceCompaction >= COMPACT_AFTER_RECORDS) {
+            compact();
+        } else {
+            journalChannel.force(false);
+        }
+        long latencyInMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - records.get(0).queuedAt);
+        keepsPersistenceMetrics.recordWritten(records.size(), latencyInMs);
+        log.debug("Wrote [{}] records to the keeps journal, [{}]ms after the first was made", records.size(), latencyInMs);
+    }
+
+    private void compact() throws IOException {
+        // not the last sequence given, as records given one may not be applied to the writer's copy of the tree yet
+        long compactedSequence = appliedSequence;
+        ObjectNode snapshot = objectMapper.valueToTree(compactedRoot);
+        snapshot.put(SEQUENCE_FIELD, compactedSequence);
+
+        Path snapshotPath = snapshotFile.toPath();
+        Path tempPath = snapshotPath.resolveSibling(snapshotFile.getName().concat(".tmp"));
+        objectMapper.writeValue(tempPath.toFile(), snapshot);
+        if (snapshotFile.exists()) {
+            Files.copy(snapshotPath, backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        // replacing the snapshot at once, the journal records it holds are skipped if the journal is not cleared in time
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        rememberSnapshotState();
+
+        if (journalChannel != null) {
+            journalChannel.truncate(0);
+            journalChannel.force(true);
+        } else {
+            Files.deleteIfExists(journalFile.toPath());
+        }
+        binarySnapshot.write(compactedRoot, compactedSequence);
+        recordsSinceCompaction = 0;
+        keepsPersistenceMetrics.recordCompacted();
+        log.debug("Compacted the keeps journal into [{}] up to record [{}]", snapshotFile, compactedSequence);
+    }
+
+    private void rememberSnapshotState() {
+        knownSnapshotLength = snapshotFile.length();
+        knownSnapshotLastModified = snapshotFile.lastModified();
+    }
+
+    private int replay(KeepsGroup root, long snapshotSequence) throws IOException {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        int replayedRecords = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Record record;
+                try {
+                    record = objectMapper.readValue(line, Record.class);
+                } catch (IOException ex) {
+                    // a record that was cut while being written, it is the last one
+                    log.warn("Ignoring an incomplete keeps journal record [{}]", line);
+                    break;
+                }
+                if (record.getSequence() > snapshotSequence) {
+                    apply(root, record);
+                    // replayed for the writer as well, once records may already be made
+                    lastSequence.accumulateAndGet(record.getSequence(), Math::max);
+                    replayedRecords++;
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error(String.format("Failed to replay the keeps journal [%s], stopped after [%d] records",
+                    journalFile, replayedRecords), ex);
+        }
+        return replayedRecords;
+    }
+
+    private void runOnWriter(WriterTask task) throws IOException {
+        try {
+            writer.submit(() -> {
+                task.run();
+                return null;
+            }).get(FLUSH_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IOException("Timed out waiting for the keeps journal writer", ex);
+        }
+    }
+
+    /**
+     * Will apply a journal record to a tree.
+     *
+     * @param root      the root node of the tree
+     * @param record    the record to apply
+     */
+    static void apply(KeepsGroup root, Record record) {
+        int[] path = record.getPath();
+        if (record.getType() == Record.Type.SORT) {
+            KeepsManager.sort(getGroup(root, path, path.length));
+            return;
+        }
+        List<KeepNode> siblings = getGroup(root, path, path.length - 1).getKeepsNodes();
+        int index = path[path.length - 1];
+        switch (record.getType()) {
+            case ADD:
+                siblings.add(index, record.getNode());
+                break;
+            case REMOVE:
+                siblings.remove(index);
+                break;
+            case UPDATE:
+                if (record.getNode() instanceof Keep) {
+                    siblings.set(index, record.getNode());
+                } else {
+                    siblings.get(index).setTitle(record.getNode().getTitle());
+                    siblings.get(index).setIcon(record.getNode().getIcon());
+                }
+                break;
+            case MOVE:
+                KeepNode movedNode = siblings.remove(index);
+                int[] targetGroupPath = record.getTargetPath();
+                getGroup(root, targetGroupPath, targetGroupPath.length).getKeepsNodes().add(movedNode);
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown keeps journal record type [%s]", record.getType()));
+        }
+    }
+
+    private static KeepsGroup getGroup(KeepsGroup root, int[] path, int depth) {
+        KeepsGroup group = root;
+        for (int i = 0; i < depth; i++) {
+            group = (KeepsGroup) group.getKeepsNodes().get(path[i]);
+        }
+        return group;
+    }
+
+    /**
+     * This class is a snapshot written by anyone else, read to replace the tree with.
+     */
+    public static final class ExternalSnapshot {
+        private final long sequence;
+        @Getter
+        private final KeepsGroup rootNode;
+        private final KeepsGroup writerRoot;
+        private final long length;
+        private final long lastModified;
+
+        private ExternalSnapshot(long sequence, KeepsGroup rootNode, KeepsGroup writerRoot, long length, long lastModified) {
+            this.sequence = sequence;
+            this.rootNode = rootNode;
+            this.writerRoot = writerRoot;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class PendingRecord {
+        private final String line;
+        private final long queuedAt;
+
+        private PendingRecord(String line, long queuedAt) {
+            this.line = line;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriterTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * This class is a single change made to the Keeps tree.
+     * Paths are the indexes of the nodes in their groups, from the root node down.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static final class Record {
+        /**
+         * The kinds of changes.
+         */
+        public enum Type { ADD, REMOVE, UPDATE, MOVE, SORT }
+
+        private long sequence;
+        private Type type;
+        private int[] path;
+        private int[] targetPath;
+        private KeepNode node;
+    }
+}
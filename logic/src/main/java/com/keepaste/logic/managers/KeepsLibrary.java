@@ -0,0 +1,114 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepaste.logic.models.KeepsGroup;
+import com.keepaste.logic.utils.FileSystemUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is a Keeps library file mounted as a top-level group of the Keeps tree, like a library shared by a team.
+ * A library is persisted to its own file through a journal of its own, so changing one library never writes another.
+ * A read-only library is never written - Keeps cannot be added to it or removed from it, and edits made to its Keeps are
+ * kept until keepaste is closed.
+ */
+@Log4j2
+@Getter
+@Setter
+@NoArgsConstructor
+public class KeepsLibrary {
+    private static final String LIBRARIES_DIRECTORY = "/libraries";
+
+    private String name;
+    private String path;
+    private boolean readOnly;
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private transient KeepsGroup rootNode;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient KeepsJournal keepsJournal;
+
+    /**
+     * Constructor.
+     *
+     * @param name      the name of the library, shown as the title of its group
+     * @param path      the path to the library file
+     * @param readOnly  true if the library is never written
+     */
+    public KeepsLibrary(@NonNull final String name, @NonNull final String path, final boolean readOnly) {
+        this.name = name;
+        this.path = path;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Will load the Keeps of the library, along with the changes made to them since they were last compacted.
+     *
+     * @param objectMapper the mapper to read the library file with
+     * @return the root node of the library, titled by the name of the library
+     * @throws IOException in case the library file could not be read
+     */
+    public KeepsGroup load(@NonNull final ObjectMapper objectMapper) throws IOException {
+        File libraryFile = new File(path);
+        if (readOnly) {
+            rootNode = objectMapper.readValue(libraryFile, KeepsGroup.class);
+        } else {
+            String librariesDirectory = FileSystemUtils.getKeepasteDirectory().concat(LIBRARIES_DIRECTORY);
+            FileSystemUtils.createDirectoryIfNotExists(librariesDirectory);
+            // the files of the journal are kept with keepaste's files rather than next to a shared library file
+            String filesPrefix = librariesDirectory.concat("/").concat(getFileName());
+            keepsJournal = new KeepsJournal(objectMapper,
+                    libraryFile,
+                    new File(filesPrefix.concat(".journal")),
+                    new File(filesPrefix.concat("_bck.json")),
+                    new File(filesPrefix.concat(".bin")));
+            rootNode = keepsJournal.load();
+        }
+        rootNode.setTitle(name);
+        log.info("Loaded Keeps library [{}] from [{}], read-only [{}]", name, path, readOnly);
+        return rootNode;
+    }
+
+    /**
+     * Will return the journal persisting the changes made to the library.
+     *
+     * @return the journal of the library, or null if the library is read-only or was not loaded
+     */
+    @JsonIgnore
+    public KeepsJournal getKeepsJournal() {
+        return readOnly ? null : keepsJournal;
+    }
+
+    private String getFileName() {
+        // the path identifies the library, the name is left out so renaming the library keeps its journal
+        return "library-".concat(Integer.toHexString(path.hashCode()));
+    }
+}
@@ -19,6 +19,8 @@
 package com.keepaste.logic.managers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.keepaste.logic.managers.command.CommandExecutor;
 import com.keepaste.logic.models.Keep;
 import com.keepaste.logic.models.KeepsGroup;
 import com.keepaste.logic.models.KeepNode;
@@ -26,113 +28,347 @@ import com.keepaste.logic.models.KeepParameter;
 import com.keepaste.logic.utils.FileSystemUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.util.*;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This utility class holds methods for managing {@code Keep}s.
+ * Besides the user's own Keeps, library files may be mounted as top-level groups of the tree, each persisted to its own
+ * file.
  */
 @Log4j2
 public final class KeepsManager {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KeepsJournal keepsJournal = new KeepsJournal(
+            objectMapper,
+            new File(getKeepsFilePathString()),
+            new File(FileSystemUtils.getKeepasteDirectory().concat("/keeps.journal")),
+            new File(getKeepsBackupFilePathString()),
+            new File(FileSystemUtils.getKeepasteDirectory().concat("/keeps.bin")));
+
+    private final List<KeepsLibrary> libraries = new CopyOnWriteArrayList<>();
 
     @Getter
     private KeepsGroup rootNode;
+    @Getter
+    private final KeepsSearchIndex keepsSearchIndex = new KeepsSearchIndex();
+    @Getter
+    private final KeepUsageStatistics keepUsageStatistics = new KeepUsageStatistics();
 
     /* ***************** PUBLIC METHODS ***************** */
 
     /**
-     * Load Keeps into the tree.
+     * Load Keeps into the tree, along with the changes made to them since they were last compacted.
      *
      * @return the root node of the tree
      * @throws IOException in case of failure
      */
     public KeepsGroup loadKeeps() throws IOException {
-        return loadKeeps(getKeepsFile());
+        getKeepsFile();
+        List<KeepsLibrary> librariesToMount = loadLibraries();
+        // the user's Keeps and the mounted libraries are loaded in parallel
+        ExecutorService loader = Executors.newFixedThreadPool(
+                Math.min(librariesToMount.size() + 1, Runtime.getRuntime().availableProcessors()),
+                CommandExecutor.daemonThreadFactory("keepaste-keeps-loader"));
+        try {
+            Future<KeepsGroup> rootNodeFuture = loader.submit(keepsJournal::load);
+            Map<KeepsLibrary, Future<KeepsGroup>> libraryFutures = new LinkedHashMap<>();
+            for (KeepsLibrary library : librariesToMount) {
+                libraryFutures.put(library, loader.submit(() -> library.load(objectMapper)));
+            }
+
+            rootNode = rootNodeFuture.get();
+            libraryFutures.forEach((library, libraryFuture) -> {
+                try {
+                    rootNode.getKeepsNodes().add(libraryFuture.get());
+                    libraries.add(library);
+                } catch (ExecutionException e) {
+                    log.error(String.format("Failed to load Keeps library [%s] from [%s]", library.getName(), library.getPath()), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            keepsSearchIndex.rebuild(rootNode);
+            bindUsageStatistics();
+            return rootNode;
+        } catch (ExecutionException e) {
+            log.error("Failed to load Keeps", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loader.shutdown();
+        }
+        return null;
     }
 
     /**
-     * Will load Keeps into the tree from a given specific file.
+     * Will mount a library file as a top-level group of the tree, and keep it mounted when keepaste is started again.
      *
-     * @param keepsFile the Keeps filename
-     * @return the root node of the tree
+     * @param library the library to mount
+     * @return the root node of the library
+     * @throws IOException in case the library file could not be read
      */
-    public KeepsGroup loadKeeps(File keepsFile) {
-        try {
-            rootNode = objectMapper.readValue(keepsFile, KeepsGroup.class);
-            return rootNode;
-        } catch (IOException e) {
-            log.error("Failed to load Keeps", e);
+    public KeepsGroup mountLibrary(@NonNull final KeepsLibrary library) throws IOException {
+        if (libraries.stream().anyMatch(mountedLibrary -> mountedLibrary.getPath().equals(library.getPath()))) {
+            throw new IOException(String.format("Keeps library [%s] is already mounted", library.getPath()));
         }
-        return null;
+        KeepsGroup libraryRootNode = library.load(objectMapper);
+        rootNode.getKeepsNodes().add(libraryRootNode);
+        keepsSearchIndex.add(libraryRootNode);
+        keepUsageStatistics.bind(libraryRootNode);
+        libraries.add(library);
+        saveLibraries();
+        log.info("Mounted Keeps library [{}] from [{}]", library.getName(), library.getPath());
+        return libraryRootNode;
     }
 
     /**
-     * Will save the current tree structure into a file.
+     * Will return true if a node is the root node of a mounted library.
      *
-     * @param rootNodeContext   the root node of the tree
+     * @param keepNode the node
+     * @return true if the node is the root node of a mounted library
      */
-    public void saveKeeps(KeepsGroup rootNodeContext) {
-        try {
-            saveKeeps(rootNodeContext, getKeepsFile());
-        } catch (Exception ex) {
-            log.error("Failed to save Keeps", ex);
+    public boolean isLibraryRootNode(@NonNull final KeepNode keepNode) {
+        return getLibraryOfRootNode(keepNode) != null;
+    }
+
+    /**
+     * Will return true if a node belongs to a read-only library, so changes to it are not persisted.
+     *
+     * @param keepNode the node
+     * @return true if the node belongs to a read-only library
+     */
+    public boolean isReadOnly(@NonNull final KeepNode keepNode) {
+        Location location = locate(keepNode);
+        return location != null && location.library != null && location.library.isReadOnly();
+    }
+
+    /**
+     * Will read the keeps file if it was written by anyone else since it was last read or written by keepaste.
+     *
+     * @return the keeps file as it was written, or null if it was not changed
+     * @throws IOException in case the keeps file could not be read
+     */
+    public KeepsJournal.ExternalSnapshot readExternallyChangedKeeps() throws IOException {
+        return keepsJournal.isSnapshotChangedExternally() ? keepsJournal.readExternalSnapshot() : null;
+    }
+
+    /**
+     * Will return the number of changes made to the user's Keeps that were not compacted into the keeps file yet, which
+     * replacing the Keeps with a keeps file written by anyone else drops.
+     *
+     * @return the number of changes not compacted into the keeps file yet
+     * @throws IOException in case the number could not be told
+     */
+    public int getUncompactedChangesCount() throws IOException {
+        return keepsJournal.getUncompactedRecordsCount();
+    }
+
+    /**
+     * Will write the user's Keeps over a keeps file written by anyone else, keeping the changes made to them.
+     *
+     * @throws IOException in case the keeps file could not be written
+     */
+    public void overwriteExternallyChangedKeeps() throws IOException {
+        keepsJournal.overwriteSnapshot();
+    }
+
+    /**
+     * Will persist the user's Keeps from a keeps file written by anyone else, once the tree was changed to match it.
+     * Changes made to the Keeps that were not compacted into the keeps file yet are dropped.
+     *
+     * @param externalSnapshot the keeps file as it was written
+     * @throws IOException in case the changes could not be dropped
+     */
+    public void replaceKeeps(@NonNull final KeepsJournal.ExternalSnapshot externalSnapshot) throws IOException {
+        keepsJournal.replaceSnapshot(externalSnapshot);
+        keepsSearchIndex.rebuild(rootNode);
+        bindUsageStatistics();
+    }
+
+    /**
+     * Will wait for all the changes made to the Keeps to be persisted.
+     */
+    public void flush() {
+        keepsJournal.flush();
+        keepUsageStatistics.flush();
+        for (KeepsLibrary library : libraries) {
+            if (library.getKeepsJournal() != null) {
+                library.getKeepsJournal().flush();
+            }
         }
+        log.info("Keeps persistence metrics [{}]", getKeepsPersistenceMetrics());
     }
 
     /**
-     * Will save the current tree structure into a file.
+     * Will return the metrics of persisting the changes made to the Keeps.
      *
-     * @param rootNodeContext   the root node of the tree
-     * @param toFile            the {@code File} where to persist the tree structure
+     * @return the metrics of persisting the changes made to the Keeps
      */
-    public void saveKeeps(KeepsGroup rootNodeContext, File toFile) {
-        try {
-            if (rootNodeContext != null) {
-                backupKeepsFile(toFile);
-                objectMapper.writeValue(toFile, rootNodeContext);
+    public KeepsPersistenceMetrics getKeepsPersistenceMetrics() {
+        return keepsJournal.getKeepsPersistenceMetrics();
+    }
+
+    /**
+     * Will add a node to a group and persist the change.
+     *
+     * @param group     the group to add the node to
+     * @param keepNode  the node to add, along with its child nodes
+     */
+    public void addKeep(@NonNull final KeepsGroup group, @NonNull final KeepNode keepNode) {
+        group.getKeepsNodes().add(keepNode);
+        keepsSearchIndex.add(keepNode);
+        keepUsageStatistics.bind(keepNode);
+        Location location = locate(keepNode);
+        KeepsJournal journal = getJournal(location);
+        if (journal != null) {
+            journal.recordAdded(location.path, keepNode);
+        }
+    }
+
+    /**
+     * Will remove a node from its group and persist the change.
+     *
+     * @param group     the group to remove the node from
+     * @param keepNode  the node to remove
+     */
+    public void removeKeep(@NonNull final KeepsGroup group, @NonNull final KeepNode keepNode) {
+        keepsSearchIndex.remove(keepNode);
+        keepUsageStatistics.unbind(keepNode);
+        KeepsLibrary library = getLibraryOfRootNode(keepNode);
+        if (library != null) {
+            // removing a library unmounts it, its file is kept as is
+            group.getKeepsNodes().remove(keepNode);
+            unmountLibrary(library);
+            return;
+        }
+        Location location = locate(keepNode);
+        KeepsJournal journal = getJournal(location);
+        if (group.getKeepsNodes().remove(keepNode) && journal != null) {
+            journal.recordRemoved(location.path);
+        }
+    }
+
+    /**
+     * Will move a node to another group and persist the change.
+     *
+     * @param fromGroup the group the node is in
+     * @param keepNode  the node to move
+     * @param toGroup   the group to move the node to
+     */
+    public void moveKeep(@NonNull final KeepsGroup fromGroup,
+                         @NonNull final KeepNode keepNode,
+                         @NonNull final KeepsGroup toGroup) {
+        Location location = locate(keepNode);
+        fromGroup.getKeepsNodes().remove(keepNode);
+        Location toGroupLocation = locate(toGroup);
+        toGroup.getKeepsNodes().add(keepNode);
+        if (location == null || toGroupLocation == null) {
+            return;
+        }
+        if (location.library == toGroupLocation.library) {
+            KeepsJournal journal = getJournal(location);
+            if (journal != null) {
+                journal.recordMoved(location.path, toGroupLocation.path);
             }
-        } catch (IOException e) {
-            log.error("Failed to save Keeps", e);
+        } else {
+            // moving between libraries is removing the node from one and adding it to the other
+            KeepsJournal fromJournal = getJournal(location);
+            if (fromJournal != null) {
+                fromJournal.recordRemoved(location.path);
+            }
+            Location newLocation = locate(keepNode);
+            KeepsJournal toJournal = getJournal(newLocation);
+            if (toJournal != null) {
+                toJournal.recordAdded(newLocation.path, keepNode);
+            }
+        }
+    }
+
+    /**
+     * Will persist the changes made to a node, like editing a Keep or renaming a group.
+     * Does nothing if the node is not part of the tree yet.
+     *
+     * @param keepNode the changed node
+     */
+    public void keepUpdated(@NonNull final KeepNode keepNode) {
+        keepsSearchIndex.update(keepNode);
+        keepUsageStatistics.updated(keepNode);
+        KeepsLibrary library = getLibraryOfRootNode(keepNode);
+        if (library != null) {
+            // the title of a library's group is the name of the library
+            library.setName(keepNode.getTitle());
+            saveLibraries();
+            return;
+        }
+        Location location = locate(keepNode);
+        KeepsJournal journal = getJournal(location);
+        if (journal != null) {
+            journal.recordUpdated(location.path, keepNode);
         }
     }
 
     /**
      * Will sort the tree alphabetically.
+     * The sorting is persisted only for the Keeps and libraries whose order has changed, so an already sorted tree
+     * leaves nothing to replay on the next start.
      */
     public void sort() {
-        sort(rootNode);
+        // the libraries are sorted first, so sorting the whole tree below only tells whether the user's Keeps changed
+        for (KeepsLibrary library : libraries) {
+            if (sort(library.getRootNode()) && library.getKeepsJournal() != null) {
+                library.getKeepsJournal().recordSorted(new int[0]);
+            }
+        }
+        if (sort(rootNode)) {
+            keepsJournal.recordSorted(new int[0]);
+        }
     }
 
     /**
      * Will sort a given node's children alphabetically.
      *
      * @param node the root node to sort its children
+     * @return true if the order of any of the nodes has changed
      */
-    public void sort(KeepNode node) {
-        if (node instanceof KeepsGroup) {
-            KeepsGroup group = (KeepsGroup) node;
-            for (KeepNode childNode : group.getKeepsNodes()) {
-                sort(childNode);
+    public static boolean sort(KeepNode node) {
+        if (!(node instanceof KeepsGroup)) {
+            return false;
+        }
+        KeepsGroup group = (KeepsGroup) node;
+        boolean isChanged = false;
+        for (KeepNode childNode : group.getKeepsNodes()) {
+            isChanged |= sort(childNode);
+        }
+        List<KeepNode> sortedNodes = new ArrayList<>(group.getKeepsNodes());
+        sortedNodes.sort((keepNode1, keepNode2) -> {
+            // keep groups before keeps
+            if (keepNode1 instanceof KeepsGroup && keepNode2 instanceof Keep) {
+                return -1;
+            } else if (keepNode2 instanceof KeepsGroup && keepNode1 instanceof Keep) {
+                return 1;
+            } else { // same types of nodes will be sorted by their title
+                return keepNode1.getTitle().compareTo(keepNode2.getTitle());
+            }
+        });
+        for (int i = 0; i < sortedNodes.size(); i++) {
+            if (sortedNodes.get(i) != group.getKeepsNodes().get(i)) {
+                Collections.copy(group.getKeepsNodes(), sortedNodes);
+                return true;
             }
-            group.getKeepsNodes().sort((keepNode1, keepNode2) -> {
-                // keep groups before keeps
-                if (keepNode1 instanceof KeepsGroup && keepNode2 instanceof Keep) {
-                    return -1;
-                } else if (keepNode2 instanceof KeepsGroup && keepNode1 instanceof Keep) {
-                    return 1;
-                } else { // same types of nodes will be sorted by their title
-                    return keepNode1.getTitle().compareTo(keepNode2.getTitle());
-                }
-            });
         }
+        return isChanged;
     }
 
     /**
@@ -184,6 +420,82 @@ public final class KeepsManager {
 
     /* ***************** PRIVATE METHODS ***************** */
 
+    /**
+     * Will return the library a node belongs to and its path in the library, the indexes of the nodes in their groups
+     * from the root node of the library down.
+     * The groups of mounted libraries are skipped when indexing the top-level nodes of the user's own Keeps, as they are
+     * not persisted along with them.
+     *
+     * @param keepNode the node to look for
+     * @return the location of the node, or null if the node is not part of the tree
+     */
+    private Location locate(KeepNode keepNode) {
+        if (rootNode == null) {
+            return null;
+        }
+        if (keepNode == rootNode) {
+            return new Location(null, new int[0]);
+        }
+        List<Integer> path = new ArrayList<>();
+        int ownIndex = 0;
+        for (KeepNode childNode : rootNode.getKeepsNodes()) {
+            KeepsLibrary library = getLibraryOfRootNode(childNode);
+            if (library != null) {
+                if (childNode == keepNode || findPath((KeepsGroup) childNode, keepNode, path)) {
+                    return new Location(library, toArray(path));
+                }
+                continue;
+            }
+            path.add(ownIndex++);
+            if (childNode == keepNode
+                    || (childNode instanceof KeepsGroup && findPath((KeepsGroup) childNode, keepNode, path))) {
+                return new Location(null, toArray(path));
+            }
+            path.clear();
+        }
+        return null;
+    }
+
+    private KeepsJournal getJournal(Location location) {
+        if (location == null) {
+            return null;
+        }
+        if (location.library == null) {
+            return keepsJournal;
+        }
+        if (location.library.isReadOnly()) {
+            log.debug("Changes to read-only Keeps library [{}] are not persisted", location.library.getName());
+        }
+        return location.library.getKeepsJournal();
+    }
+
+    private KeepsLibrary getLibraryOfRootNode(KeepNode keepNode) {
+        for (KeepsLibrary library : libraries) {
+            if (library.getRootNode() == keepNode) {
+                return library;
+            }
+        }
+        return null;
+    }
+
+    private static int[] toArray(List<Integer> path) {
+        return path.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean findPath(KeepsGroup group, KeepNode keepNode, List<Integer> path) {
+        List<KeepNode> childNodes = group.getKeepsNodes();
+        for (int i = 0; i < childNodes.size(); i++) {
+            KeepNode childNode = childNodes.get(i);
+            path.add(i);
+            if (childNode == keepNode
+                    || (childNode instanceof KeepsGroup && findPath((KeepsGroup) childNode, keepNode, path))) {
+                return true;
+            }
+            path.remove(path.size() - 1);
+        }
+        return false;
+    }
+
     private void setDefaultKeepsTreeFromFile() throws IOException {
         try (InputStream inputStream = KeepsManager.class.getResourceAsStream("/defaultkeeps/default_keeps.json")) {
             if (inputStream != null) {
@@ -198,9 +510,45 @@ public final class KeepsManager {
         }
     }
 
-    private void backupKeepsFile(File sourceFile) throws IOException {
-        File targetFile = new File(getKeepsBackupFilePathString());
-        Files.copy(sourceFile.toPath(), targetFile.toPath(), REPLACE_EXISTING);
+    private void bindUsageStatistics() {
+        keepUsageStatistics.unbindAll();
+        if (rootNode != null) {
+            keepUsageStatistics.bind(rootNode);
+        }
+    }
+
+    private void unmountLibrary(KeepsLibrary library) {
+        if (library.getKeepsJournal() != null) {
+            library.getKeepsJournal().flush();
+        }
+        libraries.remove(library);
+        saveLibraries();
+        log.info("Unmounted Keeps library [{}] from [{}]", library.getName(), library.getPath());
+    }
+
+    private List<KeepsLibrary> loadLibraries() {
+        File librariesFile = new File(getLibrariesFilePathString());
+        if (!librariesFile.exists()) {
+            return Collections.emptyList();
+        }
+        try {
+            return objectMapper.readValue(librariesFile, new TypeReference<List<KeepsLibrary>>() { });
+        } catch (IOException e) {
+            log.error(String.format("Failed to load the mounted Keeps libraries from [%s]", librariesFile), e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void saveLibraries() {
+        try {
+            objectMapper.writeValue(new File(getLibrariesFilePathString()), libraries);
+        } catch (IOException e) {
+            log.error("Failed to save the mounted Keeps libraries", e);
+        }
+    }
+
+    private String getLibrariesFilePathString() {
+        return FileSystemUtils.getKeepasteDirectory().concat("/libraries.json");
     }
 
     private void extractParamsFromNode(KeepNode node, List<KeepParameter> parameterList) {
@@ -237,4 +585,18 @@ public final class KeepsManager {
     private String getKeepsBackupFilePathString() {
         return FileSystemUtils.getKeepasteDirectory().concat("/keeps_bck.json");
     }
+
+    /**
+     * This class is where a node is persisted - the library it belongs to, null for the user's own Keeps, and its path
+     * in that library.
+     */
+    private static final class Location {
+        private final KeepsLibrary library;
+        private final int[] path;
+
+        private Location(KeepsLibrary library, int[] path) {
+            this.library = library;
+            this.path = path;
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class counts the changes made to the Keeps and the writes that persisted them, along with the time the changes
+ * waited to be persisted.
+ */
+public final class KeepsPersistenceMetrics {
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong totalLatencyInMs = new AtomicLong();
+    private final AtomicLong maxLatencyInMs = new AtomicLong();
+
+    /**
+     * Will record that a change was requested to be persisted.
+     */
+    public void recordRequested() {
+        requested.incrementAndGet();
+    }
+
+    /**
+     * Will record a write that persisted changes.
+     *
+     * @param changes       the number of changes that were written at once
+     * @param latencyInMs   the time from the first change until it was persisted
+     */
+    public void recordWritten(final int changes, final long latencyInMs) {
+        written.addAndGet(changes);
+        writes.incrementAndGet();
+        totalLatencyInMs.addAndGet(latencyInMs);
+        maxLatencyInMs.accumulateAndGet(latencyInMs, Math::max);
+    }
+
+    /**
+     * Will record that the changes were compacted into a new snapshot.
+     */
+    public void recordCompacted() {
+        compactions.incrementAndGet();
+    }
+
+    public long getRequested() {
+        return requested.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getMaxLatencyInMs() {
+        return maxLatencyInMs.get();
+    }
+
+    /**
+     * Will return the average time a write waited from its first change until it was persisted.
+     *
+     * @return the average latency of a write
+     */
+    public double getAverageLatencyInMs() {
+        long writesCount = getWrites();
+        return writesCount == 0 ? 0 : (double) totalLatencyInMs.get() / writesCount;
+    }
+
+    /**
+     * Will return the average number of changes persisted by a single write.
+     *
+     * @return the average number of changes persisted by a single write
+     */
+    public double getCoalesceRatio() {
+        long writesCount = getWrites();
+        return writesCount == 0 ? 0 : (double) getWritten() / writesCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requested=%d, written=%d, writes=%d, compactions=%d, coalesceRatio=%.2f, "
+                        + "averageLatencyInMs=%.1f, maxLatencyInMs=%d",
+                getRequested(), getWritten(), getWrites(), getCompactions(), getCoalesceRatio(),
+                getAverageLatencyInMs(), getMaxLatencyInMs());
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepParameter;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class is an in-memory search index over the Keeps' titles, phrases, descriptions and parameter names.
+ * Each Keep gets an id, and each trigram of each of its fields is mapped to the ids of the Keeps containing it along
+ * with the field, so a query only scores the Keeps sharing enough trigrams with it, allowing a typo along the way,
+ * without scanning any text. Queries shorter than a trigram match the beginnings of the fields' words instead.
+ * The index is updated incrementally and in the background as Keeps are added, removed or edited,
+ * and is safe to use from any thread.
+ */
+public final class KeepsSearchIndex {
+
+    private static final int MIN_REMOVED_TO_COMPACT = 1000;
+    private static final int TITLE = 0;
+    private static final int PHRASE = 1;
+    private static final int PARAMETERS = 2;
+    private static final int DESCRIPTION = 3;
+    private static final int FIELDS = 4;
+    private static final double[] FIELD_MATCH_WEIGHTS = {8, 5, 3, 2};
+    private static final double COVERAGE_WEIGHT = 10;
+    private static final double TITLE_PREFIX_WEIGHT = 4;
+    private static final double PHRASE_PREFIX_WEIGHT = 2;
+    private static final int WORD_PREFIX_KEY_SHIFT = 48;
+
+    // the indexed Keeps by their ids, null once removed
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Keep, Integer> ids = new IdentityHashMap<>();
+    // the ids of the Keeps containing each key, along with the field it is in, as (id * FIELDS + field)
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int removedCount;
+    // the index is changed in the background and in order, so indexing many Keeps never blocks the tree
+    private final ExecutorService indexer =
+            Executors.newSingleThreadExecutor(CommandExecutor.daemonThreadFactory("keepaste-keeps-indexer"));
+
+    /**
+     * Will replace the indexed Keeps with all the Keeps under the given group.
+     *
+     * @param rootNode the group to index the Keeps of
+     */
+    public void rebuild(final KeepsGroup rootNode) {
+        List<Keep> keeps = getKeeps(rootNode);
+        indexer.execute(() -> {
+            synchronized (this) {
+                entries.clear();
+                ids.clear();
+                postings.clear();
+                removedCount = 0;
+                keeps.forEach(this::index);
+            }
+        });
+    }
+
+    /**
+     * Will index a node, and all the Keeps under it if it is a group.
+     *
+     * @param keepNode the node to index
+     */
+    public void add(@NonNull final KeepNode keepNode) {
+        List<Keep> keeps = getKeeps(keepNode);
+        indexer.execute(() -> {
+            synchronized (this) {
+                keeps.forEach(this::index);
+            }
+        });
+    }
+
+    /**
+     * Will remove a node from the index, and all the Keeps under it if it is a group.
+     *
+     * @param keepNode the node to remove
+     */
+    public void remove(@NonNull final KeepNode keepNode) {
+        List<Keep> keeps = getKeeps(keepNode);
+        indexer.execute(() -> {
+            synchronized (this) {
+                keeps.forEach(this::unindex);
+                compactIfMostlyRemoved();
+            }
+        });
+    }
+
+    /**
+     * Will index a Keep again once it was edited.
+     *
+     * @param keepNode the edited node, ignored if not an indexed Keep, like a new Keep not added to the tree yet
+     */
+    public void update(@NonNull final KeepNode keepNode) {
+        if (keepNode instanceof Keep) {
+            Keep keep = (Keep) keepNode;
+            indexer.execute(() -> {
+                synchronized (this) {
+                    if (ids.containsKey(keep)) {
+                        unindex(keep);
+                        index(keep);
+                        compactIfMostlyRemoved();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Will return the Keeps best matching a query, best match first.
+     *
+     * @param query the text to search for
+     * @param limit the maximal number of Keeps to return
+     * @return the Keeps best matching the query, best match first
+     */
+    public synchronized List<Keep> search(@NonNull final String query, final int limit) {
+        String normalizedQuery = query.trim().toLowerCase();
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        Set<Long> queryKeys = new HashSet<>();
+        if (normalizedQuery.length() < 3) {
+            queryKeys.add(getWordPrefixKey(normalizedQuery));
+        } else {
+            addTrigrams(normalizedQuery, queryKeys);
+        }
+
+        // counting the query keys found per Keep and field, a typo misses up to three trigrams
+        int[] fieldHits = new int[entries.size() * FIELDS];
+        boolean[] isCandidate = new boolean[entries.size()];
+        IntList candidates = new IntList();
+        for (long key : queryKeys) {
+            IntList keyPostings = postings.get(key);
+            if (keyPostings != null) {
+                for (int index = 0; index < keyPostings.size; index++) {
+                    int posting = keyPostings.values[index];
+                    fieldHits[posting]++;
+                    int id = posting / FIELDS;
+                    if (!isCandidate[id]) {
+                        isCandidate[id] = true;
+                        candidates.add(id);
+                    }
+                }
+            }
+        }
+
+        int keysCount = queryKeys.size();
+        int minHits = Math.max(1, keysCount - Math.max(1, keysCount / 3));
+        PriorityQueue<ScoredEntry> bestMatches = new PriorityQueue<>(Comparator.comparingDouble(ScoredEntry::getScore));
+        for (int index = 0; index < candidates.size; index++) {
+            int id = candidates.values[index];
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            int bestFieldHits = 0;
+            double score = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                int hits = fieldHits[id * FIELDS + field];
+                bestFieldHits = Math.max(bestFieldHits, hits);
+                if (hits == keysCount) {
+                    score += FIELD_MATCH_WEIGHTS[field];
+                }
+            }
+            if (bestFieldHits >= minHits) {
+                score += COVERAGE_WEIGHT * bestFieldHits / keysCount;
+                if (entry.title.startsWith(normalizedQuery)) {
+                    score += TITLE_PREFIX_WEIGHT;
+                }
+                if (entry.phrase.startsWith(normalizedQuery)) {
+                    score += PHRASE_PREFIX_WEIGHT;
+                }
+                // shorter titles are closer matches of the same text
+                score -= entry.title.length() / 1000d;
+                offer(bestMatches, new ScoredEntry(entry, score), limit);
+            }
+        }
+
+        List<Keep> result = new ArrayList<>(bestMatches.size());
+        while (!bestMatches.isEmpty()) {
+            result.add(bestMatches.poll().entry.keep);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Will return the number of indexed Keeps.
+     *
+     * @return the number of indexed Keeps
+     */
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    private void index(Keep keep) {
+        if (ids.containsKey(keep)) {
+            return;
+        }
+        int id = entries.size();
+        Entry entry = new Entry(keep);
+        entries.add(entry);
+        ids.put(keep, id);
+        StringBuilder parameterNames = new StringBuilder();
+        if (keep.getParameters() != null) {
+            for (KeepParameter parameter : keep.getParameters()) {
+                parameterNames.append(normalize(parameter.getName())).append(' ');
+            }
+        }
+        // the fields are indexed separately, so no trigram spans two of them
+        addPostings(id, TITLE, entry.title);
+        addPostings(id, PHRASE, entry.phrase);
+        addPostings(id, PARAMETERS, parameterNames.toString());
+        addPostings(id, DESCRIPTION, normalize(keep.getDescription()));
+    }
+
+    private void unindex(Keep keep) {
+        Integer id = ids.remove(keep);
+        if (id != null) {
+            // the id is left in the postings, and skipped once found there
+            entries.set(id, null);
+            removedCount++;
+        }
+    }
+
+    private void addPostings(int id, int field, String text) {
+        Set<Long> keys = new HashSet<>();
+        addTrigrams(text, keys);
+        // the beginnings of the words, for queries shorter than a trigram
+        for (int index = 0; index < text.length(); index++) {
+            if (!Character.isWhitespace(text.charAt(index)) && (index == 0 || Character.isWhitespace(text.charAt(index - 1)))) {
+                keys.add(getWordPrefixKey(text.substring(index, index + 1)));
+                if (index + 1 < text.length() && !Character.isWhitespace(text.charAt(index + 1))) {
+                    keys.add(getWordPrefixKey(text.substring(index, index + 2)));
+                }
+            }
+        }
+        for (long key : keys) {
+            postings.computeIfAbsent(key, k -> new IntList()).add(id * FIELDS + field);
+        }
+    }
+
+    private static void offer(PriorityQueue<ScoredEntry> bestMatches, ScoredEntry scoredEntry, int limit) {
+        if (bestMatches.size() < limit) {
+            bestMatches.add(scoredEntry);
+        } else if (bestMatches.peek().getScore() < scoredEntry.getScore()) {
+            bestMatches.poll();
+            bestMatches.add(scoredEntry);
+        }
+    }
+
+    private void compactIfMostlyRemoved() {
+        if (removedCount >= MIN_REMOVED_TO_COMPACT && removedCount > entries.size() / 2) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        List<Keep> liveKeeps = new ArrayList<>(ids.size());
+        for (Entry entry : entries) {
+            if (entry != null) {
+                liveKeeps.add(entry.keep);
+            }
+        }
+        entries.clear();
+        ids.clear();
+        postings.clear();
+        removedCount = 0;
+        liveKeeps.forEach(this::index);
+    }
+
+    private static List<Keep> getKeeps(KeepNode keepNode) {
+        // collected on the calling thread, as the tree may be changed by it while the Keeps are indexed
+        List<Keep> keeps = new ArrayList<>();
+        Deque<KeepNode> nodes = new ArrayDeque<>();
+        if (keepNode != null) {
+            nodes.push(keepNode);
+        }
+        while (!nodes.isEmpty()) {
+            KeepNode node = nodes.pop();
+            if (node instanceof KeepsGroup) {
+                ((KeepsGroup) node).getKeepsNodes().forEach(nodes::push);
+            } else if (node instanceof Keep) {
+                keeps.add((Keep) node);
+            }
+        }
+        return keeps;
+    }
+
+    private static void addTrigrams(String text, Set<Long> keys) {
+        for (int index = 0; index + 2 < text.length(); index++) {
+            keys.add(((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2));
+        }
+    }
+
+    private static long getWordPrefixKey(String prefix) {
+        // trigrams take the lower 48 bits, the prefix length above them keeps the keys apart
+        long key = (long) prefix.length() << WORD_PREFIX_KEY_SHIFT;
+        for (int index = 0; index < prefix.length(); index++) {
+            key |= (long) prefix.charAt(index) << (16 * (prefix.length() - 1 - index));
+        }
+        return key;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    /**
+     * This class is an indexed Keep, along with its normalized title and phrase.
+     */
+    private static final class Entry {
+        private final Keep keep;
+        private final String title;
+        private final String phrase;
+
+        private Entry(Keep keep) {
+            this.keep = keep;
+            this.title = normalize(keep.getTitle());
+            this.phrase = normalize(keep.getPhrase());
+        }
+    }
+
+    /**
+     * This class is a scored match of a query.
+     */
+    private static final class ScoredEntry {
+        private final Entry entry;
+        private final double score;
+
+        private ScoredEntry(Entry entry, double score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        private double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * This class is a growable list of primitive ints, as the postings of tens of thousands of Keeps would not fit
+     * well in boxed lists.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.models.KeepParameter;
+import lombok.NonNull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the dependencies between the parameters of a Keep.
+ * A command-type parameter depends on every other parameter of the Keep that its command refers to as {@code <name>}.
+ */
+public final class ParameterDependencyGraph {
+    private final Map<String, KeepParameter> parameters = new LinkedHashMap<>();
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param keepParameters the parameters of the Keep, in their declared order
+     */
+    public ParameterDependencyGraph(@NonNull final List<KeepParameter> keepParameters) {
+        for (KeepParameter parameter : keepParameters) {
+            // a parameter name that is declared twice is resolved once
+            parameters.putIfAbsent(parameter.getName(), parameter);
+        }
+        for (KeepParameter parameter : parameters.values()) {
+            Set<String> parameterDependencies = new HashSet<>();
+            if (isCommandTypeParam(parameter)) {
+                for (String name : parameter.getPhraseTemplate().getParameterNames()) {
+                    // a parameter referring to itself simply keeps its own token in its command
+                    if (!name.equals(parameter.getName()) && parameters.containsKey(name)) {
+                        parameterDependencies.add(name);
+                    }
+                }
+            }
+            dependencies.put(parameter.getName(), parameterDependencies);
+        }
+    }
+
+    /**
+     * Will return the distinct parameters of the Keep in their declared order.
+     *
+     * @return the distinct parameters of the Keep in their declared order
+     */
+    public Collection<KeepParameter> getParameters() {
+        return Collections.unmodifiableCollection(parameters.values());
+    }
+
+    /**
+     * Will return the names of the parameters the given parameter refers to.
+     *
+     * @param parameter the {@code KeepParameter}
+     * @return the names of the parameters the given parameter refers to
+     */
+    public Set<String> getDependencies(@NonNull final KeepParameter parameter) {
+        return Collections.unmodifiableSet(dependencies.getOrDefault(parameter.getName(), Collections.emptySet()));
+    }
+
+    /**
+     * Will return true if all the parameters the given parameter refers to were resolved.
+     *
+     * @param parameter     the {@code KeepParameter}
+     * @param resolvedNames the names of the already resolved parameters
+     * @return true if all the parameters the given parameter refers to were resolved
+     */
+    public boolean isReady(@NonNull final KeepParameter parameter, @NonNull final Set<String> resolvedNames) {
+        return resolvedNames.containsAll(getDependencies(parameter));
+    }
+
+    /**
+     * Will return the names of the parameters that can never be resolved as they refer to each other in a cycle,
+     * directly or through other parameters.
+     *
+     * @return the names of the parameters that are part of or depend on a cycle, empty if there are none
+     */
+    public Set<String> findUnresolvableParameters() {
+        // peeling parameters whose dependencies are all resolvable, whatever remains is stuck on a cycle
+        Set<String> resolvable = new HashSet<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (String name : parameters.keySet()) {
+                if (!resolvable.contains(name) && resolvable.containsAll(dependencies.get(name))) {
+                    resolvable.add(name);
+                    progress = true;
+                }
+            }
+        }
+
+        Set<String> unresolvable = new LinkedHashSet<>(parameters.keySet());
+        unresolvable.removeAll(resolvable);
+        return unresolvable;
+    }
+
+    /**
+     * Will return true if this is a parameter whose values are the output of a command.
+     *
+     * @param parameter the {@code KeepParameter}
+     * @return true if this is a parameter whose values are the output of a command
+     */
+    public static boolean isCommandTypeParam(@NonNull final KeepParameter parameter) {
+        return parameter.getPhrase() != null && !parameter.getPhrase().isEmpty() && !parameter.getPhrase().startsWith("[");
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers;
+
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.managers.command.CommandResultCache;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepParameter;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.Timer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class speculatively executes the commands of a selected Keep's parameters in the background, so their values
+ * are ready by the time the Keep is executed.
+ * Only parameters that do not refer to other parameters are prefetched, and the prefetched commands are cancelled as
+ * soon as another node is selected.
+ */
+@Log4j2
+public final class ParameterPrefetcher {
+    public static final int MAX_CONCURRENT_PREFETCHES = 2;
+    public static final int SELECTION_DEBOUNCE_IN_MS = 300;
+    public static final long PREFETCH_MAX_AGE_IN_MS = 60_000;
+
+    private final KeepExecutionManager keepExecutionManager;
+    private final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(
+            MAX_CONCURRENT_PREFETCHES, CommandExecutor.daemonThreadFactory("keepaste-parameter-prefetch"));
+    private final Timer debounceTimer;
+    private final Map<String, PrefetchedCommand> prefetchedCommands = new HashMap<>();
+    private Keep selectedKeep;
+
+    /**
+     * Constructor.
+     *
+     * @param keepExecutionManager the {@code KeepExecutionManager} to execute the commands with
+     */
+    public ParameterPrefetcher(@NonNull final KeepExecutionManager keepExecutionManager) {
+        this.keepExecutionManager = keepExecutionManager;
+        // the selection may move on quickly when browsing the tree with the keyboard, waiting for it to settle
+        this.debounceTimer = new Timer(SELECTION_DEBOUNCE_IN_MS, e -> prefetchSelectedKeep());
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * Will start prefetching the parameters of the newly selected node, and cancel the prefetching of the previous one.
+     * Should be called on the event dispatch thread.
+     *
+     * @param keep the selected {@code Keep}, or null if no Keep is selected
+     */
+    public synchronized void onSelectionChanged(final Keep keep) {
+        if (keep != null && keep == selectedKeep) {
+            return;
+        }
+        cancel();
+        selectedKeep = keep;
+        if (keep != null && Application.getContext().getModelSettings().isPrefetchParameters()) {
+            debounceTimer.restart();
+        }
+    }
+
+    /**
+     * Will take a selection that is restored rather than made by the user, like once a Keep execution completes, as the
+     * selected node without prefetching its parameters, as they were just resolved.
+     * Should be called on the event dispatch thread, before the selection is restored.
+     *
+     * @param keep the Keep whose selection is restored, or null if the restored selection is not of a Keep
+     */
+    public synchronized void onSelectionRestored(final Keep keep) {
+        cancel();
+        selectedKeep = keep;
+    }
+
+    /**
+     * Will hand over the commands prefetched for the given Keep to its execution.
+     * The handed over commands will no longer be cancelled by selection changes.
+     *
+     * @param keep the executed {@code Keep}
+     * @return the prefetched commands by their parameter name
+     */
+    public synchronized Map<String, PrefetchedCommand> claim(@NonNull final Keep keep) {
+        if (keep != selectedKeep || prefetchedCommands.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, PrefetchedCommand> claimedCommands = new HashMap<>();
+        prefetchedCommands.forEach((name, prefetchedCommand) -> {
+            if (System.currentTimeMillis() - prefetchedCommand.getStartedAt() < PREFETCH_MAX_AGE_IN_MS) {
+                claimedCommands.put(name, prefetchedCommand);
+            } else {
+                prefetchedCommand.getOutput().cancel(true);
+            }
+        });
+        prefetchedCommands.clear();
+        log.debug("Claimed prefetched parameters [{}] of keep [{}]", claimedCommands.keySet(), keep.getTitle());
+        return claimedCommands;
+    }
+
+    /**
+     * Will cancel all the prefetched commands, killing the ones that are still running.
+     */
+    public synchronized void cancel() {
+        debounceTimer.stop();
+        if (!prefetchedCommands.isEmpty()) {
+            log.debug("Cancelling prefetched parameters [{}]", prefetchedCommands.keySet());
+            prefetchedCommands.values().forEach(prefetchedCommand -> prefetchedCommand.getOutput().cancel(true));
+            prefetchedCommands.clear();
+        }
+    }
+
+    private synchronized void prefetchSelectedKeep() {
+        Keep keep = selectedKeep;
+        if (keep == null || keep.getParameters() == null || Application.getContext().isKeepCurrentlyRunning()) {
+            return;
+        }
+
+        String path = Application.getContext().getModelSettings().getPath();
+        CommandResultCache commandResultCache = keepExecutionManager.getCommandResultCache();
+        ParameterDependencyGraph dependencyGraph = new ParameterDependencyGraph(keep.getParameters());
+        for (KeepParameter parameter : dependencyGraph.getParameters()) {
+            if (!ParameterDependencyGraph.isCommandTypeParam(parameter)
+                    || !dependencyGraph.getDependencies(parameter).isEmpty()
+                    || (parameter.isGlobal() && keepExecutionManager.getGlobalParameterStore().contains(parameter.getName()))
+                    || (parameter.getCacheTtlSeconds() > 0 && commandResultCache.contains(parameter.getPhrase(), path))) {
+                // the value of this parameter is not known yet or there is no need to execute its command
+                continue;
+            }
+
+            String command = parameter.getPhrase();
+            log.debug("Prefetching parameter [{}] of keep [{}]", parameter, keep.getTitle());
+            Future<List<String>> output = prefetchExecutor.submit(() -> {
+                List<String> lines = keepExecutionManager.executeCommand(command);
+                commandResultCache.put(command, path, lines, parameter.getCacheTtlSeconds());
+                return lines;
+            });
+            prefetchedCommands.put(parameter.getName(), new PrefetchedCommand(command, path, output));
+        }
+    }
+
+    /**
+     * This class is a parameter command that was prefetched.
+     */
+    @Getter
+    public static final class PrefetchedCommand {
+        private final String command;
+        private final String path;
+        private final Future<List<String>> output;
+        private final long startedAt = System.currentTimeMillis();
+
+        private PrefetchedCommand(String command, String path, Future<List<String>> output) {
+            this.command = command;
+            this.path = path;
+            this.output = output;
+        }
+
+        /**
+         * Will return true if this prefetched command is the one that is about to be executed.
+         *
+         * @param command   the fully substituted command
+         * @param path      the PATH environment variable the command is executed with
+         * @return true if this prefetched command is the one that is about to be executed
+         */
+        public boolean isFor(@NonNull final String command, @NonNull final String path) {
+            return this.command.equals(command) && this.path.equals(path);
+        }
+    }
+}
@@ -21,13 +21,17 @@ package com.keepaste.logic.managers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.formdev.flatlaf.themes.FlatMacDarkLaf;
 import com.formdev.flatlaf.themes.FlatMacLightLaf;
+import com.keepaste.logic.Application;
 import com.keepaste.logic.models.SettingsToFile;
 import com.keepaste.logic.utils.FileSystemUtils;
 import com.keepaste.logic.models.ModelSettings;
+import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 import javax.swing.*;
+import java.awt.EventQueue;
 import java.io.File;
 import java.io.IOException;
+import java.util.Objects;
 
 /**
  * This utility class is for managing the {@code ModelSettings}.
@@ -82,6 +86,10 @@ public final class SettingsManager {
                     .copyToClipboard(settings.isCopyToClipboard())
                     .alwaysOnTop(settings.isAlwaysOnTop())
                     .path(settings.getPath())
+                    .prefetchParameters(settings.isPrefetchParameters())
+                    .rememberGlobalParameters(settings.isRememberGlobalParameters())
+                    .interceptWindowsOnFocusChange(settings.isInterceptWindowsOnFocusChange())
+                    .deliverToTmux(settings.isDeliverToTmux())
                     .build();
 
             MAPPER.writeValue(SETTINGS_FILE, settingsToFile);
@@ -90,6 +98,54 @@ public final class SettingsManager {
         }
     }
 
+    /**
+     * Will apply the settings written to the settings file by anyone else to the given {@code ModelSettings}.
+     * The file is read on the calling thread, while only the settings that differ are set, on the EDT.
+     *
+     * @param modelSettings the {@code ModelSettings} to apply the settings to
+     */
+    public static void applySettingsFromFile(@NonNull final ModelSettings modelSettings) {
+        ModelSettings fileSettings = loadSettingsFromFile();
+        if (fileSettings == null) {
+            return;
+        }
+        EventQueue.invokeLater(() -> {
+            if (fileSettings.isCopyToClipboard() != modelSettings.isCopyToClipboard()) {
+                modelSettings.setCopyToClipboard(fileSettings.isCopyToClipboard());
+            }
+            if (fileSettings.isFocusOnWindowAndPaste() != modelSettings.isFocusOnWindowAndPaste()) {
+                modelSettings.setFocusOnWindowAndPaste(fileSettings.isFocusOnWindowAndPaste());
+            }
+            if (fileSettings.isPressEnterAfterPaste() != modelSettings.isPressEnterAfterPaste()) {
+                modelSettings.setPressEnterAfterPaste(fileSettings.isPressEnterAfterPaste());
+            }
+            if (!fileSettings.getTheme().getName().equals(modelSettings.getTheme().getName())) {
+                modelSettings.setLookAndFeel(fileSettings.getTheme());
+            }
+            if (fileSettings.isAlwaysOnTop() != modelSettings.isAlwaysOnTop()) {
+                modelSettings.setAlwaysOnTop(fileSettings.isAlwaysOnTop());
+            }
+            if (!Objects.equals(fileSettings.getPath(), modelSettings.getPath())) {
+                modelSettings.setPath(fileSettings.getPath());
+            }
+            if (fileSettings.isPrefetchParameters() != modelSettings.isPrefetchParameters()) {
+                modelSettings.setPrefetchParameters(fileSettings.isPrefetchParameters());
+            }
+            if (fileSettings.isRememberGlobalParameters() != modelSettings.isRememberGlobalParameters()) {
+                modelSettings.setRememberGlobalParameters(fileSettings.isRememberGlobalParameters());
+                Application.getContext().getKeepExecutionManager().getGlobalParameterStore()
+                        .setPersistent(fileSettings.isRememberGlobalParameters());
+            }
+            if (fileSettings.isInterceptWindowsOnFocusChange() != modelSettings.isInterceptWindowsOnFocusChange()) {
+                modelSettings.setInterceptWindowsOnFocusChange(fileSettings.isInterceptWindowsOnFocusChange());
+                Application.getContext().restartWindowInterceptorRunner();
+            }
+            if (fileSettings.isDeliverToTmux() != modelSettings.isDeliverToTmux()) {
+                modelSettings.setDeliverToTmux(fileSettings.isDeliverToTmux());
+            }
+        });
+    }
+
     /**
      * Will create a default settings file with initial default values.
      */
@@ -141,6 +197,10 @@ public final class SettingsManager {
                 .theme(lookAndFeel)
                 .alwaysOnTop(settingsToFile.isAlwaysOnTop())
                 .path(settingsToFile.getPath())
+                .prefetchParameters(settingsToFile.isPrefetchParameters())
+                .rememberGlobalParameters(settingsToFile.isRememberGlobalParameters())
+                .interceptWindowsOnFocusChange(settingsToFile.isInterceptWindowsOnFocusChange())
+                .deliverToTmux(settingsToFile.isDeliverToTmux())
                 .build();
     }
 
@@ -175,6 +235,10 @@ public final class SettingsManager {
                 .themeClassName("FlatMacDarkLaf")
                 .alwaysOnTop(true)
                 .path(System.getenv("PATH"))
+                .prefetchParameters(false)
+                .rememberGlobalParameters(false)
+                .interceptWindowsOnFocusChange(false)
+                .deliverToTmux(false)
                 .build();
     }
 }
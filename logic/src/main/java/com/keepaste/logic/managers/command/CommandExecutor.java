@@ -0,0 +1,208 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.command;
+
+import com.keepaste.logic.exceptions.KeepExecutionException;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class runs external processes without polling them.
+ * The output of a process is drained while it runs, the result completes the moment the process exits and the
+ * timeout is enforced by a scheduler.
+ */
+@Log4j2
+public final class CommandExecutor {
+    public static final Consumer<String> NO_LINE_LISTENER = line -> { };
+
+    private final ScheduledExecutorService timeoutScheduler =
+            Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("keepaste-command-timeout"));
+    private final ExecutorService streamReaders =
+            Executors.newCachedThreadPool(daemonThreadFactory("keepaste-command-stream"));
+
+    /**
+     * Will start the process described by the given {@code ProcessBuilder} and return its output lines once it exits.
+     * Cancelling the returned future will kill the process.
+     *
+     * @param processBuilder    the {@code ProcessBuilder} describing the process to start
+     * @param timeoutInSeconds  the time to wait for the process to exit before killing it
+     * @return a future of the output lines of the process
+     * @throws IOException in case the process failed to start
+     */
+    public CompletableFuture<List<String>> execute(@NonNull final ProcessBuilder processBuilder,
+                                                   final long timeoutInSeconds) throws IOException {
+        return execute(processBuilder, timeoutInSeconds, NO_LINE_LISTENER);
+    }
+
+    /**
+     * Will start the process described by the given {@code ProcessBuilder} and return its output lines once it exits.
+     * Cancelling the returned future will kill the process.
+     *
+     * @param processBuilder    the {@code ProcessBuilder} describing the process to start
+     * @param timeoutInSeconds  the time to wait for the process to exit before killing it
+     * @param lineListener      will be given each output line as soon as the process prints it
+     * @return a future of the output lines of the process
+     * @throws IOException in case the process failed to start
+     */
+    public CompletableFuture<List<String>> execute(@NonNull final ProcessBuilder processBuilder,
+                                                   final long timeoutInSeconds,
+                                                   @NonNull final Consumer<String> lineListener) throws IOException {
+        return awaitExit(processBuilder.start(), processBuilder, timeoutInSeconds, lineListener, false);
+    }
+
+    /**
+     * Will start the process described by the given {@code ProcessBuilder}, give it the given input and return its
+     * output lines once it exits successfully. The returned future fails in case the process exits with an error code.
+     * Cancelling the returned future will kill the process.
+     *
+     * @param processBuilder    the {@code ProcessBuilder} describing the process to start
+     * @param timeoutInSeconds  the time to wait for the process to exit before killing it
+     * @param input             the text to write to the standard input of the process, which is closed after it
+     * @return a future of the output lines of the process
+     * @throws IOException in case the process failed to start
+     */
+    public CompletableFuture<List<String>> executeChecked(@NonNull final ProcessBuilder processBuilder,
+                                                          final long timeoutInSeconds,
+                                                          @NonNull final String input) throws IOException {
+        Process process = processBuilder.start();
+        // written in the background, so a process printing before it reads its input will never block on it
+        streamReaders.execute(() -> {
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(input.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                log.debug("Failed to write the input of process [{}]", process.pid(), ex);
+            }
+        });
+        return awaitExit(process, processBuilder, timeoutInSeconds, NO_LINE_LISTENER, true);
+    }
+
+    private CompletableFuture<List<String>> awaitExit(Process process,
+                                                      ProcessBuilder processBuilder,
+                                                      long timeoutInSeconds,
+                                                      Consumer<String> lineListener,
+                                                      boolean isExitValueChecked) {
+        // draining the output while the process is running, so it will never block on a full pipe
+        CompletableFuture<List<String>> output =
+                CompletableFuture.supplyAsync(() -> readLines(process.getInputStream(), lineListener), streamReaders);
+        if (!processBuilder.redirectErrorStream()) {
+            streamReaders.execute(() -> readLines(process.getErrorStream(),
+                    line -> log.debug("Command error output [{}]", line)));
+        }
+
+        CompletableFuture<List<String>> result = process.onExit().thenCombine(output, (exitedProcess, lines) -> {
+            if (isExitValueChecked && exitedProcess.exitValue() != 0) {
+                throw new KeepExecutionException(String.format("Command exited with [%d]: %s",
+                        exitedProcess.exitValue(), String.join(" ", lines).trim()));
+            }
+            return lines;
+        });
+        failAfterTimeout(result, timeoutInSeconds);
+
+        result.whenComplete((lines, throwable) -> {
+            if (throwable != null) {
+                // timed out or cancelled, the process is no longer needed
+                destroy(process);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Will complete the given future with a timeout exception if it did not complete in time.
+     *
+     * @param future            the future to time
+     * @param timeoutInSeconds  the time to wait for the future to complete
+     */
+    void failAfterTimeout(@NonNull final CompletableFuture<?> future, final long timeoutInSeconds) {
+        ScheduledFuture<?> timeout = timeoutScheduler.schedule(
+                () -> future.completeExceptionally(new KeepExecutionException(
+                        String.format("Command timeout exceeded (%d sec.)", timeoutInSeconds))),
+                timeoutInSeconds, TimeUnit.SECONDS);
+        future.whenComplete((result, throwable) -> timeout.cancel(false));
+    }
+
+    /**
+     * Will return the executor used for blocking reads of processes output.
+     *
+     * @return the executor used for blocking reads of processes output
+     */
+    ExecutorService getStreamReaders() {
+        return streamReaders;
+    }
+
+    /**
+     * Will kill a process along with its descendants, as those may hold the output pipe open.
+     *
+     * @param process the {@code Process} to kill
+     */
+    public static void destroy(@NonNull final Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        if (process.isAlive()) {
+            log.debug("Killing process [{}]", process.pid());
+            process.destroyForcibly();
+        }
+    }
+
+    private static List<String> readLines(InputStream inputStream, Consumer<String> lineListener) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                lineListener.accept(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * Will return a {@code ThreadFactory} of named daemon threads, so background work never keeps the JVM alive.
+     *
+     * @param namePrefix the prefix of the threads names
+     * @return a {@code ThreadFactory} of named daemon threads
+     */
+    public static ThreadFactory daemonThreadFactory(@NonNull final String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix.concat("-").concat(String.valueOf(counter.incrementAndGet())));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.command;
+
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class caches the output of parameter commands for the time to live set on their parameter.
+ * Entries are keyed by the fully substituted command and the PATH it was executed with, and the least recently used
+ * entries are evicted once the cache is full.
+ */
+@Log4j2
+public final class CommandResultCache {
+    public static final int MAX_ENTRIES = 256;
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    private final Map<String, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Will return the cached output of a command, if it was cached and did not expire yet.
+     *
+     * @param command   the fully substituted command
+     * @param path      the PATH environment variable the command is executed with
+     * @return a copy of the cached output lines, or null if there is none
+     */
+    public List<String> get(@NonNull final String command, @NonNull final String path) {
+        String key = getKey(command, path);
+        CachedResult cachedResult;
+        synchronized (this) {
+            cachedResult = entries.get(key);
+            if (cachedResult != null && cachedResult.isExpired()) {
+                entries.remove(key);
+                cachedResult = null;
+            }
+        }
+
+        if (cachedResult == null) {
+            log.debug("Command result cache miss for [{}], hits [{}], misses [{}]",
+                    command, hits.get(), misses.incrementAndGet());
+            return null;
+        }
+        log.debug("Command result cache hit for [{}], hits [{}], misses [{}]",
+                command, hits.incrementAndGet(), misses.get());
+        // the caller may sort or trim the lines
+        return new ArrayList<>(cachedResult.lines);
+    }
+
+    /**
+     * Will return true if the output of a command is cached and did not expire yet.
+     * Unlike {@code get}, it is not counted as a cache hit or miss.
+     *
+     * @param command   the fully substituted command
+     * @param path      the PATH environment variable the command is executed with
+     * @return true if the output of the command is cached
+     */
+    public synchronized boolean contains(@NonNull final String command, @NonNull final String path) {
+        CachedResult cachedResult = entries.get(getKey(command, path));
+        return cachedResult != null && !cachedResult.isExpired();
+    }
+
+    /**
+     * Will cache the output of a command.
+     *
+     * @param command           the fully substituted command
+     * @param path              the PATH environment variable the command was executed with
+     * @param lines             the output lines of the command
+     * @param ttlInSeconds      the time to keep the output for
+     */
+    public void put(@NonNull final String command,
+                    @NonNull final String path,
+                    @NonNull final List<String> lines,
+                    final int ttlInSeconds) {
+        if (ttlInSeconds <= 0) {
+            return;
+        }
+        CachedResult cachedResult = new CachedResult(List.copyOf(lines),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlInSeconds));
+        synchronized (this) {
+            entries.put(getKey(command, path), cachedResult);
+        }
+    }
+
+    /**
+     * Will remove the cached output of a command, so it is executed again.
+     * Only the output of this exact command is removed, other parameters with the same name keep theirs.
+     *
+     * @param command   the fully substituted command
+     * @param path      the PATH environment variable the command is executed with
+     */
+    public synchronized void invalidate(@NonNull final String command, @NonNull final String path) {
+        if (entries.remove(getKey(command, path)) != null) {
+            log.debug("Invalidated cached command result of [{}]", command);
+        }
+    }
+
+    /**
+     * Will return the number of times a command output was taken from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Will return the number of times a command output was not found on the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String getKey(String command, String path) {
+        return command.concat(KEY_SEPARATOR).concat(path);
+    }
+
+    private static final class CachedResult {
+        private final List<String> lines;
+        private final long expiresAtNanos;
+
+        private CachedResult(List<String> lines, long expiresAtNanos) {
+            this.lines = lines;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
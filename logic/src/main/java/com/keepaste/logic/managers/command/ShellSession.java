@@ -0,0 +1,155 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.command;
+
+import com.keepaste.logic.exceptions.KeepExecutionException;
+import com.keepaste.logic.utils.FileSystemUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * This class is a long-lived shell process that executes commands written to its stdin.
+ * The output of each command is framed by a unique sentinel line carrying the command's exit code.
+ */
+@Log4j2
+final class ShellSession {
+    private static final String SENTINEL_PREFIX = "__keepaste_session_";
+
+    private final Process process;
+    private final Writer stdin;
+    private final BufferedReader stdout;
+    @Getter
+    private final String path;
+    @Getter
+    private int executedCommands;
+    @Getter
+    private long lastUsedAt;
+
+    private ShellSession(Process process, String path) {
+        this.process = process;
+        this.path = path;
+        this.stdin = new OutputStreamWriter(process.getOutputStream());
+        this.stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        this.lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Will start a new shell session.
+     *
+     * @param shell the shell executable
+     * @param path  the PATH environment variable of the session
+     * @return a started {@code ShellSession}
+     * @throws IOException in case the shell failed to start
+     */
+    static ShellSession start(@NonNull final String shell, @NonNull final String path) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(shell);
+        processBuilder.directory(new File(FileSystemUtils.getUserHomeDirectory()));
+        processBuilder.environment().put("PATH", path);
+        processBuilder.redirectErrorStream(true);
+        ShellSession session = new ShellSession(processBuilder.start(), path);
+        log.debug("Started shell session [{}] of [{}]", session.process.pid(), shell);
+        return session;
+    }
+
+    /**
+     * Will execute a command on the session and block until its output is framed by the sentinel.
+     * The command runs in a subshell with no stdin, so it cannot change the session's state or swallow the
+     * following commands.
+     *
+     * @param command         the command to execute
+     * @param lineListener    will be given each output line as soon as the command prints it
+     * @return the output lines of the command
+     * @throws IOException in case the session was closed before the command was written to it, so the command did not
+     *                     run and may be executed elsewhere
+     * @throws KeepExecutionException in case the session was closed after the command was written to it, as the command
+     *                                may have already run, at least partly
+     */
+    List<String> execute(@NonNull final String command, @NonNull final Consumer<String> lineListener) throws IOException {
+        if (!process.isAlive()) {
+            throw new IOException("Shell session was closed before executing a command");
+        }
+        executedCommands++;
+        String sentinel = SENTINEL_PREFIX.concat(UUID.randomUUID().toString()).concat("_");
+        stdin.write(String.format("( eval %s ) < /dev/null 2>&1; printf '%%s%%d\\n' '%s' \"$?\"\n",
+                quote(command), sentinel));
+        stdin.flush();
+
+        try {
+            return readOutput(sentinel, lineListener);
+        } catch (IOException ex) {
+            // not passing the IOException on as the cause, so the command will not be taken as one that never ran
+            throw new KeepExecutionException(
+                    String.format("Shell session was closed while executing a command (%s)", ex.getMessage()));
+        }
+    }
+
+    private List<String> readOutput(String sentinel, Consumer<String> lineListener) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            int sentinelIndex = line.indexOf(sentinel);
+            if (sentinelIndex >= 0) {
+                // the command's output may not end with a line break, so the sentinel may share its last line
+                if (sentinelIndex > 0) {
+                    lines.add(line.substring(0, sentinelIndex));
+                    lineListener.accept(line.substring(0, sentinelIndex));
+                }
+                log.debug("Shell session [{}] command exit code [{}]",
+                        process.pid(), line.substring(sentinelIndex + sentinel.length()));
+                lastUsedAt = System.currentTimeMillis();
+                return lines;
+            }
+            lines.add(line);
+            lineListener.accept(line);
+        }
+        throw new IOException("the session's output ended");
+    }
+
+    /**
+     * Will return true if the shell process is still running.
+     *
+     * @return true if the shell process is still running
+     */
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Will kill the shell along with any command that is still running on it.
+     */
+    void destroy() {
+        log.debug("Closing shell session [{}]", process.pid());
+        CommandExecutor.destroy(process);
+    }
+
+    private static String quote(String command) {
+        return "'".concat(command.replace("'", "'\\''")).concat("'");
+    }
+}
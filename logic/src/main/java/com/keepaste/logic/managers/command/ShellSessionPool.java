@@ -0,0 +1,187 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.command;
+
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class holds a pool of warm {@code ShellSession}s to execute parameter commands on, so the cost of starting
+ * a shell is not paid on every command.
+ * When no session is available the caller is expected to fall back to starting a process per command.
+ */
+@Log4j2
+public final class ShellSessionPool {
+    public static final int MAX_SESSIONS = 4;
+    public static final int MAX_COMMANDS_PER_SESSION = 100;
+    public static final long HEALTH_CHECK_IDLE_TIME_IN_MS = 30_000;
+    public static final long HEALTH_CHECK_TIMEOUT_IN_MS = 2_000;
+    private static final Set<String> SUPPORTED_SHELLS = Set.of("sh", "bash", "zsh", "ksh", "dash");
+
+    private final String shell;
+    private final CommandExecutor commandExecutor;
+    private final Deque<ShellSession> idleSessions = new ArrayDeque<>();
+    private int openSessions;
+
+    /**
+     * Constructor.
+     *
+     * @param shell             the shell executable to start sessions of
+     * @param commandExecutor   the {@code CommandExecutor} providing timeouts and reader threads
+     */
+    public ShellSessionPool(@NonNull final String shell, @NonNull final CommandExecutor commandExecutor) {
+        this.shell = shell;
+        this.commandExecutor = commandExecutor;
+    }
+
+    /**
+     * Will return true if the given shell can be driven through its stdin with the sentinel framing.
+     *
+     * @param shell the shell executable
+     * @return true if the given shell is supported by the pool
+     */
+    public static boolean isSupportedShell(@NonNull final String shell) {
+        return SUPPORTED_SHELLS.contains(new File(shell).getName());
+    }
+
+    /**
+     * Will execute a command on a warm session.
+     *
+     * @param command           the command to execute
+     * @param path              the PATH environment variable to execute the command with
+     * @param timeoutInSeconds  the time to wait for the command to complete before killing its session
+     * @param lineListener      will be given each output line as soon as the command prints it
+     * @return a future of the output lines of the command, or null if no session is available
+     */
+    public CompletableFuture<List<String>> execute(@NonNull final String command,
+                                                   @NonNull final String path,
+                                                   final long timeoutInSeconds,
+                                                   @NonNull final Consumer<String> lineListener) {
+        ShellSession session = borrow(path);
+        if (session == null) {
+            return null;
+        }
+
+        CompletableFuture<List<String>> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return session.execute(command, lineListener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, commandExecutor.getStreamReaders());
+        commandExecutor.failAfterTimeout(result, timeoutInSeconds);
+
+        result.whenComplete((lines, throwable) -> {
+            if (throwable == null) {
+                release(session);
+            } else {
+                // the session state is unknown after a failure, a timeout or a cancellation
+                discard(session);
+            }
+        });
+        return result;
+    }
+
+    private ShellSession borrow(String path) {
+        ShellSession session;
+        while ((session = pollIdleSession()) != null) {
+            if (isHealthy(session, path)) {
+                return session;
+            }
+            discard(session);
+        }
+
+        synchronized (this) {
+            if (openSessions >= MAX_SESSIONS) {
+                log.debug("All [{}] shell sessions are busy", MAX_SESSIONS);
+                return null;
+            }
+            openSessions++;
+        }
+        try {
+            return ShellSession.start(shell, path);
+        } catch (IOException ex) {
+            log.error(String.format("Failed to start a shell session of [%s]", shell), ex);
+            synchronized (this) {
+                openSessions--;
+            }
+            return null;
+        }
+    }
+
+    private boolean isHealthy(ShellSession session, String path) {
+        if (!session.isAlive() || !path.equals(session.getPath())
+                || session.getExecutedCommands() >= MAX_COMMANDS_PER_SESSION) {
+            return false;
+        }
+        if (System.currentTimeMillis() - session.getLastUsedAt() < HEALTH_CHECK_IDLE_TIME_IN_MS) {
+            return true;
+        }
+
+        // the session was idle for a while, making sure it still responds
+        CompletableFuture<List<String>> ping = CompletableFuture.supplyAsync(() -> {
+            try {
+                return session.execute(":", CommandExecutor.NO_LINE_LISTENER);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, commandExecutor.getStreamReaders());
+        try {
+            ping.get(HEALTH_CHECK_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            log.debug("Shell session failed its health check", ex);
+            return false;
+        }
+    }
+
+    private synchronized ShellSession pollIdleSession() {
+        return idleSessions.pollFirst();
+    }
+
+    private void release(ShellSession session) {
+        if (session.getExecutedCommands() >= MAX_COMMANDS_PER_SESSION) {
+            discard(session);
+        } else {
+            synchronized (this) {
+                idleSessions.addFirst(session);
+            }
+        }
+    }
+
+    private void discard(ShellSession session) {
+        session.destroy();
+        synchronized (this) {
+            openSessions--;
+        }
+    }
+}
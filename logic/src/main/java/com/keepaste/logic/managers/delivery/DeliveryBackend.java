@@ -0,0 +1,45 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.delivery;
+
+import com.keepaste.logic.models.WindowInformation;
+import lombok.NonNull;
+
+/**
+ * This interface is for the different ways to deliver an executed Keep straight into its target window, without
+ * focusing on the window and pasting from the clipboard through the {@code WindowManager}.
+ */
+public interface DeliveryBackend {
+    /**
+     * Will return the name of the backend, for logging.
+     *
+     * @return the name of the backend
+     */
+    String getName();
+
+    /**
+     * Will deliver the final Keep command into the target window, if the backend is able to reach it.
+     *
+     * @param targetWindow  the {@code WindowInformation} of the window the Keep was executed on
+     * @param phrase        the final Keep command to deliver
+     * @param pressEnter    if to press 'enter' once the command is delivered
+     * @return true if delivered, false if the backend cannot reach the window and it should be pasted on instead
+     */
+    boolean deliver(@NonNull WindowInformation targetWindow, @NonNull String phrase, boolean pressEnter);
+}
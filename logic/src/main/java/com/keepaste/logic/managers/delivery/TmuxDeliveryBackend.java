@@ -0,0 +1,236 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.delivery;
+
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.models.WindowInformation;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * This class delivers Keeps straight into tmux panes, once enabled in the settings.
+ * A Keep is delivered only when the target window is proven to show a tmux client - the window's process runs a single
+ * terminal, whose tty is the tty of a tmux client. A terminal process hosting several windows or tabs cannot be told
+ * apart this way, so Keeps executed on it are pasted as usual.
+ * The Keep is loaded into a tmux buffer and pasted on the active pane of that client - a single call to tmux, without
+ * focusing on the window or going through the clipboard.
+ */
+@Log4j2
+public final class TmuxDeliveryBackend implements DeliveryBackend {
+    public static final int TMUX_TIMEOUT_IN_SECONDS = 5;
+
+    private static final String TMUX = "tmux";
+    private static final String BUFFER_NAME = "keepaste";
+    private static final String COMMAND_SEPARATOR = ";";
+    private static final String DEVICES_DIRECTORY = "/dev/";
+
+    private final CommandExecutor commandExecutor;
+    private final Supplier<String> pathSupplier;
+    private final BooleanSupplier isEnabled;
+    // guarded by 'this', the tmux executable found on the last searched PATH
+    private String searchedPath;
+    private File tmuxExecutable;
+
+    /**
+     * Constructor, enabled by the settings and searching for tmux on the PATH set by the user.
+     *
+     * @param commandExecutor the {@code CommandExecutor} to run tmux with
+     */
+    public TmuxDeliveryBackend(@NonNull final CommandExecutor commandExecutor) {
+        this(commandExecutor,
+                () -> Application.getContext().getModelSettings().getPath(),
+                () -> Application.getContext().getModelSettings().isDeliverToTmux());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param commandExecutor   the {@code CommandExecutor} to run tmux with
+     * @param pathSupplier      supplies the PATH to search for tmux on
+     * @param isEnabled         tells if to deliver Keeps through tmux at all
+     */
+    public TmuxDeliveryBackend(@NonNull final CommandExecutor commandExecutor,
+                               @NonNull final Supplier<String> pathSupplier,
+                               @NonNull final BooleanSupplier isEnabled) {
+        this.commandExecutor = commandExecutor;
+        this.pathSupplier = pathSupplier;
+        this.isEnabled = isEnabled;
+    }
+
+    @Override
+    public String getName() {
+        return TMUX;
+    }
+
+    @Override
+    public boolean deliver(@NonNull final WindowInformation targetWindow, @NonNull final String phrase, final boolean pressEnter) {
+        if (!isEnabled.getAsBoolean() || targetWindow.getProcessId() <= 0) {
+            return false;
+        }
+        File tmux = getTmuxExecutable();
+        if (tmux == null) {
+            return false;
+        }
+        try {
+            String terminalTty = findTerminalTty(targetWindow.getProcessId());
+            if (terminalTty == null) {
+                log.debug("No single terminal tty found in window [{}]", targetWindow);
+                return false;
+            }
+            String paneId = findPane(tmux, terminalTty);
+            if (paneId == null) {
+                log.debug("No tmux client found on tty [{}] of window [{}]", terminalTty, targetWindow);
+                return false;
+            }
+
+            List<String> arguments = new ArrayList<>(Arrays.asList(
+                    "load-buffer", "-b", BUFFER_NAME, "-", COMMAND_SEPARATOR,
+                    // bracketed, so a multi-line Keep is not run line by line by shells supporting it
+                    "paste-buffer", "-p", "-d", "-b", BUFFER_NAME, "-t", paneId));
+            if (pressEnter) {
+                arguments.addAll(Arrays.asList(COMMAND_SEPARATOR, "send-keys", "-t", paneId, "Enter"));
+            }
+            // the Keep is given on the standard input, so it is never parsed as tmux arguments
+            runTmux(tmux, arguments, phrase);
+            log.debug("Delivered Keep to tmux pane [{}]", paneId);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            log.warn(String.format("Failed to deliver Keep through tmux to window [%s]", targetWindow), ex);
+        }
+        return false;
+    }
+
+    /**
+     * Will find the tty of the terminal shown in a window - the one tty of the processes the window's process started,
+     * like its shell.
+     *
+     * @param processId the id of the window's process
+     * @return the tty, like 'pts/3', or null if the window's process runs no terminal, or more than one
+     * @throws InterruptedException in case the delivery was interrupted
+     */
+    private String findTerminalTty(int processId) throws InterruptedException {
+        String childProcessIds = ProcessHandle.of(processId)
+                .map(process -> process.children()
+                        .map(child -> String.valueOf(child.pid()))
+                        .collect(Collectors.joining(",")))
+                .orElse("");
+        if (childProcessIds.isEmpty()) {
+            return null;
+        }
+        List<String> lines;
+        try {
+            lines = await(commandExecutor.executeChecked(
+                    new ProcessBuilder("ps", "-o", "tty=", "-p", childProcessIds), TMUX_TIMEOUT_IN_SECONDS, ""));
+        } catch (IOException ex) {
+            log.debug("Failed to list the ttys of process [{}]", processId, ex);
+            return null;
+        }
+        Set<String> ttys = new HashSet<>();
+        for (String line : lines) {
+            String tty = line.trim();
+            // processes without a tty are shown as '?' on Linux and '??' on macOS
+            if (!tty.isEmpty() && !tty.startsWith("?")) {
+                ttys.add(tty);
+            }
+        }
+        // several ttys are several windows or tabs of the same process, any of which may be the target window
+        return ttys.size() == 1 ? ttys.iterator().next() : null;
+    }
+
+    /**
+     * Will find the tmux pane shown on a tty - the active pane of the tmux client running on it.
+     *
+     * @param tmux  the tmux executable
+     * @param tty   the tty, like 'pts/3'
+     * @return the id of the pane, or null if no tmux client runs on the tty
+     * @throws InterruptedException in case the delivery was interrupted
+     */
+    private String findPane(File tmux, String tty) throws InterruptedException {
+        List<String> lines;
+        try {
+            lines = runTmux(tmux, Arrays.asList("list-clients", "-F", "#{client_tty} #{pane_id}"), "");
+        } catch (IOException ex) {
+            // like when no tmux server is running
+            log.debug("Failed to list the tmux clients", ex);
+            return null;
+        }
+        for (String line : lines) {
+            String[] segments = line.trim().split(" ");
+            if (segments.length == 2 && tty.equals(segments[0].replaceFirst("^" + DEVICES_DIRECTORY, ""))) {
+                return segments[1];
+            }
+        }
+        return null;
+    }
+
+    private List<String> runTmux(File tmux, List<String> arguments, String input)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(tmux.getPath());
+        command.addAll(arguments);
+        return await(commandExecutor.executeChecked(
+                new ProcessBuilder(command).redirectErrorStream(true), TMUX_TIMEOUT_IN_SECONDS, input));
+    }
+
+    private static List<String> await(CompletableFuture<List<String>> output) throws IOException, InterruptedException {
+        try {
+            return output.get();
+        } catch (InterruptedException ex) {
+            output.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            // exited with an error code or timed out
+            throw new IOException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    private synchronized File getTmuxExecutable() {
+        String path = pathSupplier.get();
+        if (path == null || !path.equals(searchedPath)) {
+            searchedPath = path;
+            tmuxExecutable = null;
+            if (path != null) {
+                for (String directory : path.split(File.pathSeparator)) {
+                    File candidate = new File(directory, TMUX);
+                    if (candidate.isFile() && candidate.canExecute()) {
+                        tmuxExecutable = candidate;
+                        break;
+                    }
+                }
+            }
+            log.debug("tmux executable [{}] found on PATH [{}]", tmuxExecutable, path);
+        }
+        return tmuxExecutable;
+    }
+}
@@ -64,7 +64,7 @@ public abstract class BaseTreeTransferHandler
             dragPane.repaint(draggedLabel.getBounds());
         }
         if (dsde.getDropSuccess() && dsde.getDropAction() == DnDConstants.ACTION_MOVE && draggedNodeParent != null) {
-            ((DefaultTreeModel) tree.getModel()).nodeStructureChanged(draggedNodeParent);
+            FilteredTreeModel.getDefaultTreeModel(tree).nodeStructureChanged(draggedNodeParent);
             tree.expandPath(new TreePath(draggedNodeParent.getPath()));
             tree.expandPath(new TreePath(draggedNode.getPath()));
         }
@@ -21,21 +21,21 @@ package com.keepaste.logic.managers.tree;
 import com.keepaste.logic.models.Keep;
 import com.keepaste.logic.models.KeepsGroup;
 import com.keepaste.logic.models.KeepNode;
-import com.keepaste.logic.utils.ImagesUtils;
 import lombok.Getter;
 
 import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import java.awt.*;
-import java.util.Set;
+import java.awt.event.MouseEvent;
 
 /**
  * This class is a custom renderer for the tree in order to modify the tree's look and feel.
  */
 public class CustomTreeCellRenderer extends DefaultTreeCellRenderer {
 
-    private static final Set<String> KNOWN_KEEPS_ICONS = Set.of("mvn");
+    // the Keep last rendered, its tooltip is generated only once the tree asks for it
+    private transient Keep renderedKeep;
 
     @Override
     public Component getTreeCellRendererComponent(
@@ -48,18 +48,15 @@ public class CustomTreeCellRenderer extends DefaultTreeCellRenderer {
         }
 
         Icon icon;
+        renderedKeep = null;
         if (leaf && !(keepNode instanceof KeepsGroup)) {
             Keep keep = (Keep) keepNode;
             icon = getIconForKeep(keep);
-            if (keepNode != null) {
-                setToolTipText(((Keep) keepNode).toStringHTML());
-            }
+            renderedKeep = keep;
         } else if (expanded) {
             icon = getOpenIcon();
-            setToolTipText("");
         } else {
             icon = getClosedIcon();
-            setToolTipText("");
         }
 
         label.setIcon(icon);
@@ -67,22 +64,27 @@ public class CustomTreeCellRenderer extends DefaultTreeCellRenderer {
         return label;
     }
 
+    /**
+     * Will return the tooltip of the Keep last rendered. {@code JTree} renders the hovered row right before asking
+     * for its tooltip, so the tooltip is generated only when shown and not on every paint.
+     *
+     * @param event the mouse event over the rendered row
+     * @return the tooltip of the rendered Keep, or {@code null} for groups
+     */
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        return renderedKeep == null ? null : renderedKeep.toStringHTML();
+    }
+
     private Icon getIconForKeep(Keep keep) {
         Icon icon = getLeafIcon();
         if (keep == null) {
             icon = getClosedIcon();
-        } else {
-            if (keep.getPhrase() != null && !keep.getPhrase().isEmpty()) {
-                String[] coreCommandExecutable = keep.getPhrase().trim().split(" ");
-                String coreCommand = coreCommandExecutable[0];
-
-                if (KNOWN_KEEPS_ICONS.contains(coreCommand)) {
-                    // take approved icon form 3rd party
-                    icon = ImagesUtils.getImageIconFromFilePath("/Commands/".concat(coreCommand).concat(".png"));
-                } else {
-                    // generate custom icon if needed
-                    icon = ImagesUtils.getImageIconAndGenerateIfNotPresent(coreCommandExecutable[0]/*, (ImageIcon)getLeafIcon()*/);
-                }
+        } else if (keep.getExecutable() != null) {
+            // until resolved in the background, the default Keep icon is shown
+            Icon cachedIcon = KeepIconCache.getIcon(keep.getExecutable());
+            if (cachedIcon != null) {
+                icon = cachedIcon;
             }
         }
         return icon;
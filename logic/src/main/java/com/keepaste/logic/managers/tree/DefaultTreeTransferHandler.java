@@ -61,8 +61,7 @@ public class DefaultTreeTransferHandler extends BaseTreeTransferHandler {
                 KeepNode targetKeepNode = (KeepNode) newParentNode.getUserObject();
                 int result = JOptionPane.showConfirmDialog(Application.getContext().getGui(), String.format("Are you sure you want to move \"%s\" to be under \"%s\"?", draggedKeepNode.getTitle(), targetKeepNode.getTitle()), "Move node confirmation", JOptionPane.YES_NO_OPTION);
                 if (result == JOptionPane.YES_OPTION) {
-                    viewTree.removeKeepFromTree(draggedNode);
-                    viewTree.addKeepToTree((KeepNode) draggedNode.getUserObject(), newParentNode);
+                    viewTree.moveKeepInTree(draggedNode, newParentNode);
                 }
             }
             return true;
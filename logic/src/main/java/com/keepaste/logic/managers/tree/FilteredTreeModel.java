@@ -0,0 +1,387 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreeNode;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class is a {@code TreeModel} over the Keeps tree's {@code DefaultTreeModel}, which can hide the tree nodes not
+ * matching a filter, showing only the matching Keeps and the groups containing them, all expanded.
+ * The tree nodes themselves are never created again, the filter only decides which of them are shown, and the
+ * tree nodes of unloaded groups are created only for the groups containing matches.
+ * The matching Keeps are the ones the search index finds for the filter, so a typo still matches, and the tree is only
+ * walked through the groups containing them.
+ * Once filtered, only the groups of the first matches are expanded, so filtering a large tree stays as fast as
+ * filtering a small one. Without a filter, all the tree nodes and events of the underlying model are passed as they are.
+ */
+@Log4j2
+public class FilteredTreeModel implements TreeModel {
+    // the matches whose groups are expanded, the groups of the rest are shown collapsed
+    public static final int MAX_EXPANDED_MATCHES = 300;
+    // the most Keeps shown as matching a filter, the best matching ones
+    public static final int MAX_MATCHES = 1000;
+
+    private final JTree tree;
+    private final DefaultTreeModel delegate;
+    private final Consumer<KeepsGroupTreeNode> groupLoader;
+    private final Function<String, List<Keep>> matcher;
+    private final EventListenerList listeners = new EventListenerList();
+
+    // the current filter, null while not filtering
+    private String filter;
+    // the Keeps matching the filter, best match first
+    private List<Keep> rankedMatchingKeeps = Collections.emptyList();
+    private final Set<Keep> matchingKeeps = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<TreeNode> visibleNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    // the matching Keeps' tree nodes, in tree order
+    private final List<DefaultMutableTreeNode> matchingTreeNodes = new ArrayList<>();
+    private final Map<Keep, DefaultMutableTreeNode> matchingTreeNodesByKeep = new IdentityHashMap<>();
+    private final Map<TreeNode, List<TreeNode>> visibleChildren = new IdentityHashMap<>();
+    // the expanded paths to restore once the filter is cleared
+    private List<TreePath> expandedPathsBeforeFilter;
+    // set while the filter loads groups, whose events are covered by showing the filtered tree
+    private boolean isFiltering;
+    private boolean isRefilterScheduled;
+
+    /**
+     * Constructor.
+     *
+     * @param tree          the tree shown with this model
+     * @param delegate      the underlying model of the tree
+     * @param groupLoader   creates the child tree nodes of an unloaded group
+     * @param matcher       returns the Keeps matching a filter, best match first
+     */
+    public FilteredTreeModel(@NonNull final JTree tree,
+                             @NonNull final DefaultTreeModel delegate,
+                             @NonNull final Consumer<KeepsGroupTreeNode> groupLoader,
+                             @NonNull final Function<String, List<Keep>> matcher) {
+        this.tree = tree;
+        this.delegate = delegate;
+        this.groupLoader = groupLoader;
+        this.matcher = matcher;
+        delegate.addTreeModelListener(new DelegateListener());
+    }
+
+    /**
+     * Will return the {@code DefaultTreeModel} of a tree, the underlying one if the tree is shown filtered.
+     *
+     * @param tree the tree
+     * @return the {@code DefaultTreeModel} of the tree
+     */
+    public static DefaultTreeModel getDefaultTreeModel(@NonNull final JTree tree) {
+        TreeModel treeModel = tree.getModel();
+        return treeModel instanceof FilteredTreeModel
+                ? ((FilteredTreeModel) treeModel).delegate
+                : (DefaultTreeModel) treeModel;
+    }
+
+    /**
+     * Will show only the Keeps matching a filter, and the groups containing them, all expanded.
+     * A Keep matches if the search index finds it for the filter, by its title, phrase, description or parameter names.
+     *
+     * @param newFilter the filter, a blank one shows the whole tree again
+     */
+    public void setFilter(final String newFilter) {
+        String normalizedFilter = newFilter == null || newFilter.isBlank() ? null : newFilter.trim().toLowerCase();
+        if (normalizedFilter == null) {
+            if (filter != null) {
+                clearFilter();
+            }
+            return;
+        }
+        if (normalizedFilter.equals(filter)) {
+            return;
+        }
+        if (filter == null) {
+            expandedPathsBeforeFilter = getExpandedPaths();
+        }
+        filter = normalizedFilter;
+        long startedAt = System.nanoTime();
+        isFiltering = true;
+        try {
+            computeFromTree();
+        } finally {
+            isFiltering = false;
+        }
+        log.debug("Tree - Filtered [{}] matching Keeps in [{}] us",
+                matchingTreeNodes.size(), (System.nanoTime() - startedAt) / 1000);
+        showFiltered();
+    }
+
+    /**
+     * Will return true while the tree is shown filtered.
+     *
+     * @return true while the tree is shown filtered
+     */
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    /**
+     * Will return the tree nodes of the Keeps matching the current filter, in tree order.
+     *
+     * @return the tree nodes of the matching Keeps, empty while not filtering
+     */
+    public List<DefaultMutableTreeNode> getMatchingTreeNodes() {
+        return Collections.unmodifiableList(matchingTreeNodes);
+    }
+
+    /**
+     * Will return the tree node of the Keep best matching the filter.
+     *
+     * @return the tree node of the Keep best matching the filter, or null if none is shown
+     */
+    public DefaultMutableTreeNode getBestMatchingTreeNode() {
+        for (Keep keep : rankedMatchingKeeps) {
+            DefaultMutableTreeNode treeNode = matchingTreeNodesByKeep.get(keep);
+            if (treeNode != null) {
+                return treeNode;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object getRoot() {
+        return delegate.getRoot();
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return filter == null ? delegate.getChild(parent, index) : getVisibleChildren((TreeNode) parent).get(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return filter == null ? delegate.getChildCount(parent) : getVisibleChildren((TreeNode) parent).size();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return delegate.isLeaf(node);
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        delegate.valueForPathChanged(path, newValue);
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (filter == null) {
+            return delegate.getIndexOfChild(parent, child);
+        }
+        return parent == null || child == null ? -1 : getVisibleChildren((TreeNode) parent).indexOf(child);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener listener) {
+        listeners.add(TreeModelListener.class, listener);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener listener) {
+        listeners.remove(TreeModelListener.class, listener);
+    }
+
+    private void clearFilter() {
+        filter = null;
+        rankedMatchingKeeps = Collections.emptyList();
+        matchingKeeps.clear();
+        visibleNodes.clear();
+        matchingTreeNodes.clear();
+        matchingTreeNodesByKeep.clear();
+        visibleChildren.clear();
+        fireTreeStructureChanged();
+        if (expandedPathsBeforeFilter != null) {
+            expandedPathsBeforeFilter.forEach(tree::expandPath);
+            expandedPathsBeforeFilter = null;
+        }
+    }
+
+    private void computeFromTree() {
+        rankedMatchingKeeps = matcher.apply(filter);
+        matchingKeeps.clear();
+        matchingKeeps.addAll(rankedMatchingKeeps);
+        visibleNodes.clear();
+        matchingTreeNodes.clear();
+        matchingTreeNodesByKeep.clear();
+        visibleChildren.clear();
+        TreeNode root = (TreeNode) delegate.getRoot();
+        if (!matchingKeeps.isEmpty() && root instanceof DefaultMutableTreeNode) {
+            collectMatches((DefaultMutableTreeNode) root);
+        }
+    }
+
+    private void collectMatches(DefaultMutableTreeNode treeNode) {
+        Object userObject = treeNode.getUserObject();
+        if (userObject instanceof Keep) {
+            if (matchingKeeps.contains(userObject)) {
+                addMatch(treeNode);
+            }
+            return;
+        }
+        if (treeNode instanceof KeepsGroupTreeNode && !((KeepsGroupTreeNode) treeNode).isLoaded()) {
+            // creating the tree nodes of a group only once it is known to contain a match
+            if (!containsMatch(((KeepsGroupTreeNode) treeNode).getKeepsGroup())) {
+                return;
+            }
+            groupLoader.accept((KeepsGroupTreeNode) treeNode);
+        }
+        for (int index = 0; index < treeNode.getChildCount(); index++) {
+            collectMatches((DefaultMutableTreeNode) treeNode.getChildAt(index));
+        }
+    }
+
+    private boolean containsMatch(KeepsGroup keepsGroup) {
+        for (KeepNode keepNode : keepsGroup.getKeepsNodes()) {
+            if (keepNode instanceof KeepsGroup ? containsMatch((KeepsGroup) keepNode) : matchingKeeps.contains(keepNode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addMatch(DefaultMutableTreeNode keepTreeNode) {
+        matchingTreeNodes.add(keepTreeNode);
+        matchingTreeNodesByKeep.put((Keep) keepTreeNode.getUserObject(), keepTreeNode);
+        TreeNode node = keepTreeNode;
+        while (node != null && visibleNodes.add(node)) {
+            node = node.getParent();
+        }
+    }
+
+    private List<TreeNode> getVisibleChildren(TreeNode parent) {
+        return visibleChildren.computeIfAbsent(parent, key -> {
+            List<TreeNode> children = new ArrayList<>();
+            for (int index = 0; index < key.getChildCount(); index++) {
+                if (visibleNodes.contains(key.getChildAt(index))) {
+                    children.add(key.getChildAt(index));
+                }
+            }
+            return children;
+        });
+    }
+
+    private void showFiltered() {
+        fireTreeStructureChanged();
+        // expanding the groups of the first matches, each group once
+        Set<TreeNode> expandedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DefaultMutableTreeNode keepTreeNode : matchingTreeNodes.subList(0, Math.min(MAX_EXPANDED_MATCHES, matchingTreeNodes.size()))) {
+            TreeNode parent = keepTreeNode.getParent();
+            if (parent instanceof DefaultMutableTreeNode && expandedGroups.add(parent)) {
+                tree.expandPath(new TreePath(((DefaultMutableTreeNode) parent).getPath()));
+            }
+        }
+    }
+
+    private List<TreePath> getExpandedPaths() {
+        List<TreePath> expandedPaths = new ArrayList<>();
+        Enumeration<TreePath> paths = tree.getExpandedDescendants(new TreePath(delegate.getRoot()));
+        if (paths != null) {
+            expandedPaths.addAll(Collections.list(paths));
+        }
+        return expandedPaths;
+    }
+
+    private void fireTreeStructureChanged() {
+        TreeModelEvent event = new TreeModelEvent(this, new TreePath(delegate.getRoot()));
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeStructureChanged(event);
+        }
+    }
+
+    /**
+     * This class passes the underlying model's events on while not filtering, and filters the tree again otherwise.
+     */
+    private final class DelegateListener implements TreeModelListener {
+
+        @Override
+        public void treeNodesChanged(TreeModelEvent e) {
+            onDelegateEvent(e, TreeModelListener::treeNodesChanged);
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent e) {
+            onDelegateEvent(e, TreeModelListener::treeNodesInserted);
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent e) {
+            onDelegateEvent(e, TreeModelListener::treeNodesRemoved);
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent e) {
+            onDelegateEvent(e, TreeModelListener::treeStructureChanged);
+        }
+
+        private void onDelegateEvent(TreeModelEvent e, BiConsumer<TreeModelListener, TreeModelEvent> dispatch) {
+            if (filter == null) {
+                TreeModelEvent event = new TreeModelEvent(FilteredTreeModel.this, e.getTreePath(), e.getChildIndices(), e.getChildren());
+                for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+                    dispatch.accept(listener, event);
+                }
+            } else if (!isFiltering && !isRefilterScheduled) {
+                // the tree was changed while filtered, which may add or remove matches anywhere,
+                // filtering once for all the changes made along with this one
+                isRefilterScheduled = true;
+                SwingUtilities.invokeLater(this::refilter);
+            }
+        }
+
+        private void refilter() {
+            isRefilterScheduled = false;
+            if (filter == null) {
+                return;
+            }
+            isFiltering = true;
+            try {
+                computeFromTree();
+            } finally {
+                isFiltering = false;
+            }
+            showFiltered();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keepaste.logic.utils.ImagesUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a sprite sheet of the generated Keeps icons of a single theme. The icons are kept in one PNG file,
+ * in a grid of fixed size slots, along with an index file of the executables in slot order.
+ * New icons are appended to the next free slots, so slots of an older index are always valid on a newer image.
+ */
+@Log4j2
+final class KeepIconAtlas {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int ICON_SIZE = ImagesUtils.DEFAULT_ICON_WIDTH_HEIGHT;
+    private static final int COLUMNS = 16;
+
+    @Getter
+    private final String themeName;
+    private final File imageFile;
+    private final File indexFile;
+    private final Map<String, BufferedImage> icons = new LinkedHashMap<>();
+
+    private KeepIconAtlas(String themeName, File directory) {
+        this.themeName = themeName;
+        String fileName = "atlas-".concat(themeName.replaceAll("[^A-Za-z0-9]+", "-").toLowerCase());
+        this.imageFile = new File(directory, fileName.concat(".png"));
+        this.indexFile = new File(directory, fileName.concat(".json"));
+    }
+
+    /**
+     * Will load the atlas of a theme, or return an empty one if there is no valid atlas file of it yet.
+     *
+     * @param themeName the name of the theme
+     * @param directory the directory the atlas files are kept in
+     * @return the atlas of the theme
+     */
+    static KeepIconAtlas load(@NonNull final String themeName, @NonNull final File directory) {
+        KeepIconAtlas atlas = new KeepIconAtlas(themeName, directory);
+        if (!atlas.imageFile.exists() || !atlas.indexFile.exists()) {
+            return atlas;
+        }
+        try {
+            List<String> executables = MAPPER.readValue(atlas.indexFile, new TypeReference<List<String>>() { });
+            BufferedImage image = ImageIO.read(atlas.imageFile);
+            if (image == null || image.getWidth() < COLUMNS * ICON_SIZE
+                    || image.getHeight() < getRows(executables.size()) * ICON_SIZE) {
+                log.warn("Icons atlas [{}] does not match its index, regenerating it", atlas.imageFile);
+                return atlas;
+            }
+            for (int slot = 0; slot < executables.size(); slot++) {
+                atlas.icons.put(executables.get(slot),
+                        image.getSubimage(getX(slot), getY(slot), ICON_SIZE, ICON_SIZE));
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn(String.format("Failed to read the icons atlas [%s], regenerating it", atlas.imageFile), ex);
+            atlas.icons.clear();
+        }
+        return atlas;
+    }
+
+    /**
+     * Will return the icon of an executable.
+     *
+     * @param executable the executable
+     * @return the icon of the executable, or {@code null} if it is not in the atlas
+     */
+    BufferedImage get(String executable) {
+        return icons.get(executable);
+    }
+
+    /**
+     * Will add icons to the next free slots of the atlas and write it, the image file first and the index file
+     * after it, each through a temporary file.
+     *
+     * @param newIcons the icons to add, by their executables
+     */
+    void addAndWrite(@NonNull final Map<String, BufferedImage> newIcons) {
+        newIcons.forEach(icons::putIfAbsent);
+        List<String> executables = new ArrayList<>(icons.keySet());
+        BufferedImage image = new BufferedImage(COLUMNS * ICON_SIZE, Math.max(1, getRows(executables.size())) * ICON_SIZE,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        for (int slot = 0; slot < executables.size(); slot++) {
+            g2d.drawImage(icons.get(executables.get(slot)), getX(slot), getY(slot), null);
+        }
+        g2d.dispose();
+
+        try {
+            Path imageTempPath = imageFile.toPath().resolveSibling(imageFile.getName().concat(".tmp"));
+            ImageIO.write(image, "png", imageTempPath.toFile());
+            Files.move(imageTempPath, imageFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Path indexTempPath = indexFile.toPath().resolveSibling(indexFile.getName().concat(".tmp"));
+            MAPPER.writeValue(indexTempPath.toFile(), executables);
+            Files.move(indexTempPath, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Icons atlas [{}] was written with [{}] icons", imageFile, executables.size());
+        } catch (IOException ex) {
+            log.error(String.format("Failed to write the icons atlas [%s]", imageFile), ex);
+        }
+    }
+
+    private static int getRows(int slots) {
+        return (slots + COLUMNS - 1) / COLUMNS;
+    }
+
+    private static int getX(int slot) {
+        return (slot % COLUMNS) * ICON_SIZE;
+    }
+
+    private static int getY(int slot) {
+        return (slot / COLUMNS) * ICON_SIZE;
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.command.CommandExecutor;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepsGroup;
+import com.keepaste.logic.utils.ImagesUtils;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * This class is a bounded in-memory cache of the icons shown for Keeps on the tree, keyed by the Keep's executable
+ * and the current theme, so painting the tree never goes to the file system or draws an icon.
+ * Icons missing from the cache are resolved in the background, in batches: icons missing from the theme's
+ * {@code KeepIconAtlas} are drawn in parallel and appended to it, and the tree is repainted once they are ready.
+ * Until then, the tree shows its default Keep icon as a placeholder.
+ */
+@Log4j2
+public final class KeepIconCache {
+
+    private static final int MAX_CACHED_ICONS = 256;
+    private static final Set<String> KNOWN_KEEPS_ICONS = Set.of("mvn");
+    private static final Map<String, Icon> ICONS = new LinkedHashMap<>(MAX_CACHED_ICONS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+            return size() > MAX_CACHED_ICONS;
+        }
+    };
+    // executables waiting to be resolved, by their cache keys
+    private static final Map<String, String> PENDING = new ConcurrentHashMap<>();
+    private static final ExecutorService RESOLVER =
+            Executors.newSingleThreadExecutor(CommandExecutor.daemonThreadFactory("keepaste-icons-resolver"));
+    // accessed by the resolver thread only
+    private static KeepIconAtlas atlas;
+    private static Icon defaultIcon;
+    private static volatile Runnable onIconsReady = () -> { };
+
+    private KeepIconCache() { }
+
+    /**
+     * Will return the icon of a Keep's executable under the current theme.
+     * An icon not cached yet is queued to be resolved in the background.
+     *
+     * @param executable the Keep's executable, the first word of its phrase
+     * @return the icon of the executable under the current theme, or {@code null} if it is not resolved yet
+     */
+    public static Icon getIcon(@NonNull final String executable) {
+        String key = getKey(executable, getThemeName());
+        Icon icon;
+        synchronized (ICONS) {
+            icon = ICONS.get(key);
+        }
+        if (icon == null && PENDING.put(key, executable) == null) {
+            RESOLVER.execute(KeepIconCache::resolvePending);
+        }
+        return icon;
+    }
+
+    /**
+     * Will set what to run on the EDT once a batch of icons was resolved, like repainting the tree.
+     *
+     * @param onIconsReady what to run once a batch of icons was resolved
+     */
+    public static void setOnIconsReady(@NonNull final Runnable onIconsReady) {
+        KeepIconCache.onIconsReady = onIconsReady;
+    }
+
+    /**
+     * Will drop all the cached icons, as needed once the theme is changed.
+     */
+    public static void invalidate() {
+        synchronized (ICONS) {
+            ICONS.clear();
+        }
+        PENDING.clear();
+    }
+
+    /**
+     * Will resolve, in the background and in a single batch, the icons of all the Keeps under the given group,
+     * so the first paint of the tree is served from the cache.
+     *
+     * @param rootNode the group to warm the icons of its Keeps
+     */
+    public static void warmUp(final KeepsGroup rootNode) {
+        if (rootNode == null) {
+            return;
+        }
+        RESOLVER.execute(() -> {
+            Set<String> executables = new HashSet<>();
+            try {
+                Deque<KeepNode> nodes = new ArrayDeque<>();
+                nodes.push(rootNode);
+                while (!nodes.isEmpty()) {
+                    KeepNode keepNode = nodes.pop();
+                    if (keepNode instanceof KeepsGroup) {
+                        ((KeepsGroup) keepNode).getKeepsNodes().forEach(nodes::push);
+                    } else if (keepNode instanceof Keep && ((Keep) keepNode).getExecutable() != null) {
+                        executables.add(((Keep) keepNode).getExecutable());
+                    }
+                }
+            } catch (Exception ex) {
+                // the tree may be changed while walked, the icons not warmed are resolved once painted
+                log.debug("Failed to scan the Keeps for their icons", ex);
+            }
+            resolve(executables, getThemeName());
+        });
+    }
+
+    private static void resolvePending() {
+        Set<String> executables = new HashSet<>();
+        for (String key : PENDING.keySet()) {
+            String executable = PENDING.remove(key);
+            if (executable != null) {
+                executables.add(executable);
+            }
+        }
+        if (!executables.isEmpty()) {
+            resolve(executables, getThemeName());
+        }
+    }
+
+    private static void resolve(Collection<String> executables, String themeName) {
+        try {
+            if (atlas == null || !atlas.getThemeName().equals(themeName)) {
+                atlas = KeepIconAtlas.load(themeName, new File(ImagesUtils.getCommandsIconsDirectory()));
+                defaultIcon = ImagesUtils.getDefaultKeepNodeIcon();
+            }
+
+            // drawing the missing icons in parallel, and writing them to the atlas at once
+            Map<String, BufferedImage> drawnIcons = executables.parallelStream()
+                    .filter(executable -> !KNOWN_KEEPS_ICONS.contains(executable))
+                    .filter(executable -> ImagesUtils.getCommandColor(executable) != null && atlas.get(executable) == null)
+                    .collect(Collectors.toMap(Function.identity(),
+                            executable -> ImagesUtils.renderIcon(executable, ImagesUtils.getCommandColor(executable), themeName)));
+            if (!drawnIcons.isEmpty()) {
+                atlas.addAndWrite(drawnIcons);
+            }
+
+            synchronized (ICONS) {
+                for (String executable : executables) {
+                    ICONS.put(getKey(executable, themeName), toIcon(executable));
+                }
+            }
+            SwingUtilities.invokeLater(onIconsReady);
+        } catch (Exception ex) {
+            log.error("Failed to resolve the Keeps icons", ex);
+        }
+    }
+
+    private static Icon toIcon(String executable) {
+        if (KNOWN_KEEPS_ICONS.contains(executable)) {
+            // take approved icon form 3rd party
+            return ImagesUtils.getImageIconFromFilePath("/Commands/".concat(executable).concat(".png"));
+        }
+        Image image = atlas.get(executable);
+        return image == null ? defaultIcon : new ImageIcon(image);
+    }
+
+    private static String getKey(String executable, String themeName) {
+        return executable.concat("|").concat(themeName);
+    }
+
+    private static String getThemeName() {
+        return Application.getContext().getModelSettings().getTheme().getName();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class is a tree node of a Keeps group, whose child tree nodes are created only once the group is expanded.
+ * Until then, the node is shown as a group with children as long as the group has any.
+ */
+public class KeepsGroupTreeNode extends DefaultMutableTreeNode {
+    // groups first, then by their title, the same order nodes are inserted to the tree in
+    private static final Comparator<KeepNode> TREE_ORDER = Comparator
+            .comparing((KeepNode keepNode) -> keepNode instanceof Keep)
+            .thenComparing(KeepNode::getTitle, (title1, title2) -> StringUtils.compareIgnoreCase(title1, title2));
+
+    @Getter
+    private boolean isLoaded;
+    /**
+     * the time the node was last collapsed at, 0 while it is expanded.
+     */
+    @Getter
+    @Setter
+    private long collapsedAt;
+
+    /**
+     * Constructor.
+     *
+     * @param keepsGroup the group of the node
+     */
+    public KeepsGroupTreeNode(@NonNull final KeepsGroup keepsGroup) {
+        super(keepsGroup);
+    }
+
+    public KeepsGroup getKeepsGroup() {
+        return (KeepsGroup) getUserObject();
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return isLoaded ? super.isLeaf() : getKeepsGroup().getKeepsNodes().isEmpty();
+    }
+
+    /**
+     * Will create the tree nodes of the group's children, if they were not created yet.
+     * Child groups are created unloaded in turn.
+     *
+     * @return true if the child tree nodes were created by this call
+     */
+    public boolean loadChildren() {
+        if (isLoaded) {
+            return false;
+        }
+        List<KeepNode> children = new ArrayList<>(getKeepsGroup().getKeepsNodes());
+        children.sort(TREE_ORDER);
+        for (KeepNode child : children) {
+            add(createTreeNode(child));
+        }
+        isLoaded = true;
+        return true;
+    }
+
+    /**
+     * Will create a tree node for a Keep or a group, the tree nodes of a group's children are created once it is expanded.
+     *
+     * @param keepNode the Keep or group
+     * @return the tree node
+     */
+    public static DefaultMutableTreeNode createTreeNode(@NonNull final KeepNode keepNode) {
+        return keepNode instanceof KeepsGroup
+                ? new KeepsGroupTreeNode((KeepsGroup) keepNode)
+                : new DefaultMutableTreeNode(keepNode);
+    }
+
+    /**
+     * Will return the index to insert the tree node of a Keep or a group at, so groups come first and each by its title.
+     *
+     * @param parentTreeNode    the tree node to insert to
+     * @param childKeep         the Keep or group to insert
+     * @return the index to insert the tree node at
+     */
+    public static int getInsertIndex(@NonNull final DefaultMutableTreeNode parentTreeNode, @NonNull final KeepNode childKeep) {
+        int i;
+        for (i = 0; i < parentTreeNode.getChildCount(); i++) {
+            DefaultMutableTreeNode childTreeNode = (DefaultMutableTreeNode) parentTreeNode.getChildAt(i);
+            KeepNode childKeepNode = (KeepNode) childTreeNode.getUserObject();
+            // if this is the first group, add it in index 0
+            if (childKeep instanceof KeepsGroup && childKeepNode instanceof Keep) {
+                return i;
+            }
+            if (((childKeep instanceof KeepsGroup && childKeepNode instanceof KeepsGroup)
+                    || (childKeep instanceof Keep && childKeepNode instanceof Keep)) &&
+                    StringUtils.compareIgnoreCase(childKeepNode.getTitle(), childKeep.getTitle()) > 0) {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Will release the tree nodes of the group's children, they are created again once the group is expanded.
+     */
+    public void releaseChildren() {
+        removeAllChildren();
+        isLoaded = false;
+    }
+}
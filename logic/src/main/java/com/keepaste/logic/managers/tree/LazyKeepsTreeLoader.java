@@ -0,0 +1,158 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.keepaste.logic.Application;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.JTree;
+import javax.swing.Timer;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * This class creates the tree nodes of a Keeps group's children once the group is about to be expanded, so only the
+ * groups the user has opened take memory.
+ * Under memory pressure, the child tree nodes of groups that were left collapsed for a while are released, and created
+ * again once they are expanded.
+ */
+@Log4j2
+public class LazyKeepsTreeLoader implements TreeWillExpandListener, TreeExpansionListener {
+    public static final int RELEASE_CHECK_INTERVAL_IN_MS = 60 * 1000;
+    public static final long RELEASE_COLLAPSED_AFTER_IN_MS = 5 * 60 * 1000L;
+    public static final double MEMORY_PRESSURE_RATIO = 0.7;
+
+    private final JTree tree;
+    // the loaded groups, accessed on the EDT only
+    private final Set<KeepsGroupTreeNode> loadedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor.
+     *
+     * @param tree the tree to load the nodes of
+     */
+    public LazyKeepsTreeLoader(@NonNull final JTree tree) {
+        this.tree = tree;
+        Timer releaseTimer = new Timer(RELEASE_CHECK_INTERVAL_IN_MS, e -> releaseIfUnderMemoryPressure());
+        releaseTimer.start();
+    }
+
+    /**
+     * Will forget the loaded groups, once the tree is built again.
+     */
+    public void reset() {
+        loadedGroups.clear();
+    }
+
+    /**
+     * Will create the child tree nodes of a group, if they were not created yet.
+     *
+     * @param groupTreeNode the tree node of the group
+     */
+    public void load(@NonNull final KeepsGroupTreeNode groupTreeNode) {
+        if (groupTreeNode.loadChildren()) {
+            loadedGroups.add(groupTreeNode);
+            FilteredTreeModel.getDefaultTreeModel(tree).nodeStructureChanged(groupTreeNode);
+            log.debug("Tree - Loaded [{}] child nodes of group [{}]", groupTreeNode.getChildCount(), groupTreeNode);
+        }
+    }
+
+    @Override
+    public void treeWillExpand(TreeExpansionEvent event) {
+        Object node = event.getPath().getLastPathComponent();
+        if (node instanceof KeepsGroupTreeNode) {
+            load((KeepsGroupTreeNode) node);
+        }
+    }
+
+    @Override
+    public void treeWillCollapse(TreeExpansionEvent event) {
+        // nothing to do before collapsing
+    }
+
+    @Override
+    public void treeExpanded(TreeExpansionEvent event) {
+        Object node = event.getPath().getLastPathComponent();
+        if (node instanceof KeepsGroupTreeNode) {
+            ((KeepsGroupTreeNode) node).setCollapsedAt(0);
+        }
+    }
+
+    @Override
+    public void treeCollapsed(TreeExpansionEvent event) {
+        Object node = event.getPath().getLastPathComponent();
+        if (node instanceof KeepsGroupTreeNode) {
+            ((KeepsGroupTreeNode) node).setCollapsedAt(System.currentTimeMillis());
+        }
+    }
+
+    private void releaseIfUnderMemoryPressure() {
+        Runtime runtime = Runtime.getRuntime();
+        double usedMemoryRatio = (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        if (usedMemoryRatio < MEMORY_PRESSURE_RATIO
+                || Application.getContext().getKeepExecutionManager().getKeepExecutionScheduler().getRunningKeepsCount() > 0) {
+            // running Keeps restore the selection they started with once they are done
+            return;
+        }
+
+        long releaseBefore = System.currentTimeMillis() - RELEASE_COLLAPSED_AFTER_IN_MS;
+        TreePath selectionPath = tree.getSelectionPath();
+        int releasedGroups = 0;
+        for (KeepsGroupTreeNode groupTreeNode : loadedGroups.toArray(new KeepsGroupTreeNode[0])) {
+            if (groupTreeNode.getRoot() != tree.getModel().getRoot()) {
+                // the group was removed from the tree
+                loadedGroups.remove(groupTreeNode);
+            } else if (isReleasable(groupTreeNode, releaseBefore, selectionPath)) {
+                // the released group's descendants are forgotten along with it
+                for (Object descendant : Collections.list(groupTreeNode.breadthFirstEnumeration())) {
+                    loadedGroups.remove(descendant);
+                }
+                groupTreeNode.releaseChildren();
+                FilteredTreeModel.getDefaultTreeModel(tree).nodeStructureChanged(groupTreeNode);
+                releasedGroups++;
+            }
+        }
+        if (releasedGroups > 0) {
+            log.info("Tree - Released the child nodes of [{}] groups collapsed for a while, used memory ratio [{}]",
+                    releasedGroups, usedMemoryRatio);
+        }
+    }
+
+    private boolean isReleasable(KeepsGroupTreeNode groupTreeNode, long releaseBefore, TreePath selectionPath) {
+        long collapsedAt = groupTreeNode.getCollapsedAt();
+        if (!groupTreeNode.isLoaded() || collapsedAt == 0 || collapsedAt > releaseBefore) {
+            return false;
+        }
+        // the selected node must stay on the tree
+        return selectionPath == null || !isDescendant(selectionPath, groupTreeNode);
+    }
+
+    private static boolean isDescendant(TreePath path, DefaultMutableTreeNode ancestor) {
+        Object lastComponent = path.getLastPathComponent();
+        return lastComponent != ancestor
+                && lastComponent instanceof DefaultMutableTreeNode
+                && ((DefaultMutableTreeNode) lastComponent).isNodeAncestor(ancestor);
+    }
+}
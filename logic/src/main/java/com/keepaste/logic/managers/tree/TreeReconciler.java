@@ -0,0 +1,216 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.managers.tree;
+
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.models.KeepNode;
+import com.keepaste.logic.models.KeepParameter;
+import com.keepaste.logic.models.KeepsGroup;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * This class changes a Keeps tree to match an updated version of it, like one written to the keeps file by anyone else.
+ * Nodes are matched by their type and title, so only the nodes that were added, removed or changed are touched - the
+ * matched nodes are kept along with their tree nodes, which keeps the expanded groups and the selection as they are.
+ * Groups that are the same object in both versions are skipped, so updating a tree takes as long as the changed
+ * groups rather than the whole tree.
+ * Must be called on the EDT.
+ */
+@Log4j2
+public class TreeReconciler {
+    private final DefaultTreeModel treeModel;
+    private final Predicate<KeepNode> isPinned;
+    private int addedCount;
+    private int removedCount;
+    private int changedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param treeModel the model of the tree to notify on the changes
+     * @param isPinned  nodes to keep as they are, like mounted libraries that are not part of the updated version
+     */
+    public TreeReconciler(@NonNull final DefaultTreeModel treeModel, @NonNull final Predicate<KeepNode> isPinned) {
+        this.treeModel = treeModel;
+        this.isPinned = isPinned;
+    }
+
+    /**
+     * Will change a group and its tree node to match an updated version of the group.
+     *
+     * @param group         the group to change
+     * @param updatedGroup  the updated version of the group, its nodes are taken over by the group
+     * @param groupTreeNode the tree node of the group, or null if there is none
+     */
+    public void reconcile(@NonNull final KeepsGroup group,
+                          @NonNull final KeepsGroup updatedGroup,
+                          final DefaultMutableTreeNode groupTreeNode) {
+        addedCount = 0;
+        removedCount = 0;
+        changedCount = 0;
+        reconcileGroup(group, updatedGroup, groupTreeNode);
+        log.info("Tree - Reconciled the tree, [{}] nodes added, [{}] removed and [{}] changed",
+                addedCount, removedCount, changedCount);
+    }
+
+    private void reconcileGroup(KeepsGroup group, KeepsGroup updatedGroup, DefaultMutableTreeNode groupTreeNode) {
+        if (group == updatedGroup) {
+            return;
+        }
+        Map<String, Deque<KeepNode>> nodesByKey = new HashMap<>();
+        List<KeepNode> pinnedNodes = new ArrayList<>();
+        for (KeepNode keepNode : group.getKeepsNodes()) {
+            if (isPinned.test(keepNode)) {
+                pinnedNodes.add(keepNode);
+            } else {
+                nodesByKey.computeIfAbsent(getKey(keepNode), key -> new ArrayDeque<>()).add(keepNode);
+            }
+        }
+
+        // the group takes the order of the updated version, as the order is what the persisted paths refer to
+        List<KeepNode> reconciledNodes = new ArrayList<>();
+        List<KeepNode> addedNodes = new ArrayList<>();
+        List<KeepNode> changedNodes = new ArrayList<>();
+        for (KeepNode updatedNode : updatedGroup.getKeepsNodes()) {
+            Deque<KeepNode> matchingNodes = nodesByKey.get(getKey(updatedNode));
+            KeepNode keepNode = matchingNodes != null ? matchingNodes.poll() : null;
+            if (keepNode == null) {
+                addedNodes.add(updatedNode);
+                reconciledNodes.add(updatedNode);
+                continue;
+            }
+            if (keepNode == updatedNode) {
+                reconciledNodes.add(keepNode);
+                continue;
+            }
+            if (keepNode instanceof Keep) {
+                if (copyIfChanged((Keep) updatedNode, (Keep) keepNode)) {
+                    changedNodes.add(keepNode);
+                }
+            } else {
+                reconcileGroup((KeepsGroup) keepNode, (KeepsGroup) updatedNode, findChildTreeNode(groupTreeNode, keepNode));
+            }
+            reconciledNodes.add(keepNode);
+        }
+        reconciledNodes.addAll(pinnedNodes);
+        List<KeepNode> removedNodes = new ArrayList<>();
+        nodesByKey.values().forEach(removedNodes::addAll);
+
+        group.getKeepsNodes().clear();
+        group.getKeepsNodes().addAll(reconciledNodes);
+        addedCount += addedNodes.size();
+        removedCount += removedNodes.size();
+        changedCount += changedNodes.size();
+
+        if (groupTreeNode instanceof KeepsGroupTreeNode && !((KeepsGroupTreeNode) groupTreeNode).isLoaded()) {
+            // the tree nodes of the children are created from the group once it is expanded
+            if (!addedNodes.isEmpty() || !removedNodes.isEmpty()) {
+                treeModel.nodeStructureChanged(groupTreeNode);
+            }
+            return;
+        }
+        if (groupTreeNode != null) {
+            updateTreeNodes(groupTreeNode, addedNodes, removedNodes, changedNodes);
+        }
+    }
+
+    private void updateTreeNodes(DefaultMutableTreeNode groupTreeNode,
+                                 List<KeepNode> addedNodes,
+                                 List<KeepNode> removedNodes,
+                                 List<KeepNode> changedNodes) {
+        for (KeepNode removedNode : removedNodes) {
+            DefaultMutableTreeNode treeNode = findChildTreeNode(groupTreeNode, removedNode);
+            if (treeNode != null) {
+                treeModel.removeNodeFromParent(treeNode);
+            }
+        }
+        for (KeepNode changedNode : changedNodes) {
+            DefaultMutableTreeNode treeNode = findChildTreeNode(groupTreeNode, changedNode);
+            if (treeNode != null) {
+                treeModel.nodeChanged(treeNode);
+            }
+        }
+        for (KeepNode addedNode : addedNodes) {
+            treeModel.insertNodeInto(KeepsGroupTreeNode.createTreeNode(addedNode), groupTreeNode,
+                    KeepsGroupTreeNode.getInsertIndex(groupTreeNode, addedNode));
+        }
+    }
+
+    private static DefaultMutableTreeNode findChildTreeNode(DefaultMutableTreeNode groupTreeNode, KeepNode keepNode) {
+        if (groupTreeNode == null) {
+            return null;
+        }
+        for (int i = 0; i < groupTreeNode.getChildCount(); i++) {
+            DefaultMutableTreeNode childTreeNode = (DefaultMutableTreeNode) groupTreeNode.getChildAt(i);
+            if (childTreeNode.getUserObject() == keepNode) {
+                return childTreeNode;
+            }
+        }
+        return null;
+    }
+
+    private static String getKey(KeepNode keepNode) {
+        return (keepNode instanceof KeepsGroup ? "group:" : "keep:").concat(String.valueOf(keepNode.getTitle()));
+    }
+
+    private static boolean copyIfChanged(Keep updatedKeep, Keep keep) {
+        if (Objects.equals(updatedKeep.getPhrase(), keep.getPhrase())
+                && Objects.equals(updatedKeep.getDescription(), keep.getDescription())
+                && updatedKeep.isNeverPressEnter() == keep.isNeverPressEnter()
+                && isSameParameters(updatedKeep.getParameters(), keep.getParameters())) {
+            return false;
+        }
+        keep.setPhrase(updatedKeep.getPhrase());
+        keep.setDescription(updatedKeep.getDescription());
+        keep.setNeverPressEnter(updatedKeep.isNeverPressEnter());
+        keep.setParameters(updatedKeep.getParameters());
+        return true;
+    }
+
+    private static boolean isSameParameters(List<KeepParameter> parameters, List<KeepParameter> otherParameters) {
+        if (parameters == null || otherParameters == null) {
+            return parameters == otherParameters;
+        }
+        if (parameters.size() != otherParameters.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            KeepParameter parameter = parameters.get(i);
+            KeepParameter otherParameter = otherParameters.get(i);
+            if (!Objects.equals(parameter.getName(), otherParameter.getName())
+                    || !Objects.equals(parameter.getPhrase(), otherParameter.getPhrase())
+                    || parameter.isGlobal() != otherParameter.isGlobal()
+                    || parameter.getCacheTtlSeconds() != otherParameter.getCacheTtlSeconds()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
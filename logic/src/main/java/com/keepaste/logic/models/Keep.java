@@ -18,16 +18,24 @@
 
 package com.keepaste.logic.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.formdev.flatlaf.util.StringUtils;
-import com.keepaste.logic.managers.KeepExecutionManager;
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.GlobalParameterStore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.apache.commons.text.StringEscapeUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * This class represents a Keep which is a data unit for storing a phrase, description and its parameters.
@@ -47,6 +55,26 @@ public class Keep extends KeepNode {
     private List<KeepParameter> parameters;
     // if to never press 'Enter' after pasting, even if this option in general is on
     private boolean neverPressEnter;
+    // the parsed phrase, parsed again once the phrase is changed
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient PhraseTemplate phraseTemplate;
+    // the executable (first word) of the phrase, resolved again once the phrase is changed
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient String executable;
+    // the phrase the executable was resolved from
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient String executablePhrase;
+    // the last generated HTML representation, generated again once the Keep or its global parameters are changed
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient HtmlMemo htmlMemo;
 
     /**
      * Constructor.
@@ -64,6 +92,37 @@ public class Keep extends KeepNode {
         return getTitle();
     }
 
+    /**
+     * Will return the parsed phrase of the Keep.
+     *
+     * @return the parsed phrase of the Keep
+     */
+    @JsonIgnore
+    public PhraseTemplate getPhraseTemplate() {
+        PhraseTemplate template = phraseTemplate;
+        if (template == null || template.getSource() != phrase) {
+            template = PhraseTemplate.compile(phrase);
+            phraseTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * Will return the executable of the Keep, which is the first word of its phrase, as used to pick its icon on the tree.
+     *
+     * @return the executable of the Keep, or {@code null} if the Keep has no phrase
+     */
+    @JsonIgnore
+    public String getExecutable() {
+        String currentPhrase = phrase;
+        if (currentPhrase != executablePhrase) {
+            String trimmedPhrase = currentPhrase == null ? "" : currentPhrase.trim();
+            executable = trimmedPhrase.isEmpty() ? null : trimmedPhrase.split(" ")[0];
+            executablePhrase = currentPhrase;
+        }
+        return executable;
+    }
+
     /**
      * Expanded representation of the Keep.
      *
@@ -89,6 +148,16 @@ public class Keep extends KeepNode {
      * @return HTML representation of the Keep
      */
     public String toStringHTML() {
+        GlobalParameterStore.Snapshot globalParameters = Application.getContext().getKeepExecutionManager().getGlobalParameterStore().getSnapshot();
+        HtmlMemo memo = htmlMemo;
+        if (memo == null || !memo.isValid(this, globalParameters)) {
+            memo = new HtmlMemo(this, globalParameters, generateHTML(globalParameters));
+            htmlMemo = memo;
+        }
+        return memo.html;
+    }
+
+    private String generateHTML(GlobalParameterStore.Snapshot globalParameters) {
         StringBuilder sb = new StringBuilder();
         sb.append("<html>");
         sb.append(String.format("<b>%s</b><br/>", getTitle()));
@@ -100,7 +169,7 @@ public class Keep extends KeepNode {
         if (parameters != null) {
             for (KeepParameter parameter : parameters) {
                 final var color = getColor(parameter);
-                final var currentValue = getCurrentValue(parameter);
+                final var currentValue = getCurrentValue(parameter, globalParameters);
                 final var type = getType(parameter);
                 String command = !StringUtils.isEmpty(parameter.getPhrase()) ? "\"".concat(parameter.getPhrase()).concat("\"") : "";
                 sb.append(String.format("<b style=\"color: %s\">%s</b> (%s%s)<blockquote><i>%s</i></blockquote>",
@@ -124,11 +193,11 @@ public class Keep extends KeepNode {
         return type;
     }
 
-    private static String getCurrentValue(KeepParameter parameter) {
+    private static String getCurrentValue(KeepParameter parameter, GlobalParameterStore.Snapshot globalParameters) {
         String currentValue = "";
-        if (KeepExecutionManager.GLOBAL_PARAMETER_VALUES_MAP.containsKey(parameter.getName())) {
-            currentValue = ", <b>\"".concat(
-                    KeepExecutionManager.GLOBAL_PARAMETER_VALUES_MAP.get(parameter.getName())).concat("\"</b>");
+        String globalValue = globalParameters.getValues().get(parameter.getName());
+        if (globalValue != null) {
+            currentValue = ", <b>\"".concat(globalValue).concat("\"</b>");
         }
         return currentValue;
     }
@@ -140,4 +209,59 @@ public class Keep extends KeepNode {
         }
         return color;
     }
+
+    /**
+     * This class is a generated HTML representation of a Keep, along with what it was generated from.
+     */
+    private static final class HtmlMemo {
+        private final String title;
+        private final String description;
+        private final String phrase;
+        private final List<List<Object>> parameters;
+        private final Map<String, String> referencedGlobalValues = new HashMap<>();
+        private long globalParametersVersion;
+        private final String html;
+
+        private HtmlMemo(Keep keep, GlobalParameterStore.Snapshot globalParameters, String html) {
+            this.title = keep.getTitle();
+            this.description = keep.getDescription();
+            this.phrase = keep.getPhrase();
+            this.parameters = getParametersFields(keep);
+            this.globalParametersVersion = globalParameters.getVersion();
+            this.html = html;
+            if (keep.getParameters() != null) {
+                for (KeepParameter parameter : keep.getParameters()) {
+                    referencedGlobalValues.put(parameter.getName(), globalParameters.getValues().get(parameter.getName()));
+                }
+            }
+        }
+
+        private boolean isValid(Keep keep, GlobalParameterStore.Snapshot globalParameters) {
+            // edits replace the Keep's texts, so comparing their references is enough, while the parameters are edited in place
+            if (title != keep.getTitle() || description != keep.getDescription()
+                    || phrase != keep.getPhrase() || !parameters.equals(getParametersFields(keep))) {
+                return false;
+            }
+            if (globalParametersVersion != globalParameters.getVersion()) {
+                // only the values of the parameters this Keep references matter
+                for (Map.Entry<String, String> entry : referencedGlobalValues.entrySet()) {
+                    if (!Objects.equals(entry.getValue(), globalParameters.getValues().get(entry.getKey()))) {
+                        return false;
+                    }
+                }
+                globalParametersVersion = globalParameters.getVersion();
+            }
+            return true;
+        }
+
+        private static List<List<Object>> getParametersFields(Keep keep) {
+            List<List<Object>> parametersFields = new ArrayList<>();
+            if (keep.getParameters() != null) {
+                for (KeepParameter parameter : keep.getParameters()) {
+                    parametersFields.add(Arrays.asList(parameter.getName(), parameter.getPhrase(), parameter.isGlobal()));
+                }
+            }
+            return parametersFields;
+        }
+    }
 }
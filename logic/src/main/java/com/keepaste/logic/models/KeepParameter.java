@@ -18,6 +18,8 @@
 
 package com.keepaste.logic.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -49,6 +51,32 @@ public class KeepParameter {
     private String name;
     private String phrase;
     private boolean isGlobal;
+    /**
+     * the time in seconds to reuse the output of the parameter's command for, 0 to always execute it.
+     */
+    private int cacheTtlSeconds;
+    /**
+     * the parsed phrase, parsed again once the phrase is changed.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient PhraseTemplate phraseTemplate;
+
+    /**
+     * Will return the parsed phrase of the parameter.
+     *
+     * @return the parsed phrase of the parameter
+     */
+    @JsonIgnore
+    public PhraseTemplate getPhraseTemplate() {
+        PhraseTemplate template = phraseTemplate;
+        if (template == null || template.getSource() != phrase) {
+            template = PhraseTemplate.compile(phrase);
+            phraseTemplate = template;
+        }
+        return template;
+    }
 
     @Override
     public String toString() {
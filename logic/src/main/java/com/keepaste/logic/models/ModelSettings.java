@@ -53,6 +53,22 @@ public class ModelSettings extends BaseModel {
     // the PATH env var to use when running parameter commands in the background
     private String path;
 
+    // if to execute the parameter commands of a selected Keep before it is executed
+    @Getter
+    private boolean prefetchParameters;
+
+    // if to keep the values of global parameters between runs
+    @Getter
+    private boolean rememberGlobalParameters;
+
+    // if to sample the active window only around the focus transitions of the Keepaste window, rather than constantly
+    @Getter
+    private boolean interceptWindowsOnFocusChange;
+
+    // if to deliver Keeps straight into the tmux clients shown in their target windows, rather than pasting them
+    @Getter
+    private boolean deliverToTmux;
+
     /**
      * If to copy the Keep to the Clipboard.
      *
@@ -111,6 +127,42 @@ public class ModelSettings extends BaseModel {
         updateAllObservers(this);
     }
 
+    /**
+     * If to execute the parameter commands of a selected Keep before it is executed.
+     * @param value the value
+     */
+    public void setPrefetchParameters(final boolean value) {
+        this.prefetchParameters = value;
+        updateAllObservers(this);
+    }
+
+    /**
+     * If to keep the values of global parameters between runs.
+     * @param value the value
+     */
+    public void setRememberGlobalParameters(final boolean value) {
+        this.rememberGlobalParameters = value;
+        updateAllObservers(this);
+    }
+
+    /**
+     * If to sample the active window only around the focus transitions of the Keepaste window, rather than constantly.
+     * @param value the value
+     */
+    public void setInterceptWindowsOnFocusChange(final boolean value) {
+        this.interceptWindowsOnFocusChange = value;
+        updateAllObservers(this);
+    }
+
+    /**
+     * If to deliver Keeps straight into the tmux clients shown in their target windows, rather than pasting them.
+     * @param value the value
+     */
+    public void setDeliverToTmux(final boolean value) {
+        this.deliverToTmux = value;
+        updateAllObservers(this);
+    }
+
     public LookAndFeel getTheme() {
         return theme == null ? SettingsManager.getDefaultModelSettings().getTheme() : theme;
     }
@@ -132,6 +184,18 @@ public class ModelSettings extends BaseModel {
                 System.getProperty(LINE_SEPARATOR) +
                 "theme=" +
                 getTheme().getClass().getName() +
+                System.getProperty(LINE_SEPARATOR) +
+                "prefetchParameters=" +
+                prefetchParameters +
+                System.getProperty(LINE_SEPARATOR) +
+                "rememberGlobalParameters=" +
+                rememberGlobalParameters +
+                System.getProperty(LINE_SEPARATOR) +
+                "interceptWindowsOnFocusChange=" +
+                interceptWindowsOnFocusChange +
+                System.getProperty(LINE_SEPARATOR) +
+                "deliverToTmux=" +
+                deliverToTmux +
                 System.getProperty(LINE_SEPARATOR);
     }
 }
@@ -0,0 +1,159 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.models;
+
+import lombok.NonNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is a parsed phrase of a Keep or of a Keep parameter, split to the literal text and the {@code <name>}
+ * tokens of the parameters it refers to.
+ * A phrase is parsed once and then rendered with the values of its parameters in a single pass.
+ * A token's name may not be empty, contain '<', '>' or a line break, or start or end with a whitespace, so shell
+ * redirections like {@code sort < in > out} are kept as literal text.
+ */
+public final class PhraseTemplate {
+    private final String source;
+    // the literal text around the tokens, there is always one more literal than there are tokens
+    private final String[] literals;
+    private final String[] tokenNames;
+    private final Set<String> parameterNames;
+    private final int literalsLength;
+
+    private PhraseTemplate(String source, List<String> literals, List<String> tokenNames) {
+        this.source = source;
+        this.literals = literals.toArray(new String[0]);
+        this.tokenNames = tokenNames.toArray(new String[0]);
+        this.parameterNames = Collections.unmodifiableSet(new LinkedHashSet<>(tokenNames));
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    /**
+     * Will parse a phrase to a template.
+     *
+     * @param phrase the phrase, null is treated as an empty phrase
+     * @return the parsed template
+     */
+    public static PhraseTemplate compile(final String phrase) {
+        List<String> literals = new ArrayList<>();
+        List<String> tokenNames = new ArrayList<>();
+        if (phrase == null) {
+            literals.add("");
+            return new PhraseTemplate(null, literals, tokenNames);
+        }
+
+        int literalStart = 0;
+        int index = phrase.indexOf('<');
+        while (index >= 0) {
+            int tokenEnd = findTokenEnd(phrase, index);
+            if (tokenEnd > 0) {
+                literals.add(phrase.substring(literalStart, index));
+                tokenNames.add(phrase.substring(index + 1, tokenEnd));
+                literalStart = tokenEnd + 1;
+                index = phrase.indexOf('<', literalStart);
+            } else {
+                index = phrase.indexOf('<', index + 1);
+            }
+        }
+        literals.add(phrase.substring(literalStart));
+        return new PhraseTemplate(phrase, literals, tokenNames);
+    }
+
+    private static int findTokenEnd(String phrase, int tokenStart) {
+        for (int i = tokenStart + 1; i < phrase.length(); i++) {
+            char c = phrase.charAt(i);
+            if (c == '>') {
+                boolean isValidName = i > tokenStart + 1
+                        && !Character.isWhitespace(phrase.charAt(tokenStart + 1))
+                        && !Character.isWhitespace(phrase.charAt(i - 1));
+                return isValidName ? i : -1;
+            }
+            if (c == '<' || c == '\n' || c == '\r') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Will return the phrase this template was parsed from.
+     *
+     * @return the phrase this template was parsed from, may be null
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Will return the names of the parameters the phrase refers to, in the order they first appear.
+     *
+     * @return the names of the parameters the phrase refers to
+     */
+    public Set<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Will return true if the phrase refers to the given parameter.
+     *
+     * @param parameterName the name of the parameter
+     * @return true if the phrase refers to the given parameter
+     */
+    public boolean refersTo(@NonNull final String parameterName) {
+        return parameterNames.contains(parameterName);
+    }
+
+    /**
+     * Will render the phrase with the values of its parameters.
+     * A token of a parameter that has no value is kept as is, and values are never rendered again, so a value holding
+     * a token is kept as is as well.
+     *
+     * @param parameterValues the values by their parameter name
+     * @return the rendered phrase
+     */
+    public String render(@NonNull final Map<String, String> parameterValues) {
+        if (tokenNames.length == 0) {
+            return literals[0];
+        }
+
+        String[] tokenValues = new String[tokenNames.length];
+        int length = literalsLength;
+        for (int i = 0; i < tokenNames.length; i++) {
+            String value = parameterValues.get(tokenNames[i]);
+            tokenValues[i] = value != null ? value : "<".concat(tokenNames[i]).concat(">");
+            length += tokenValues[i].length();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < tokenNames.length; i++) {
+            sb.append(literals[i]).append(tokenValues[i]);
+        }
+        sb.append(literals[tokenNames.length]);
+        return sb.toString();
+    }
+}
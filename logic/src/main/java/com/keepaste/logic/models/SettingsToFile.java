@@ -36,4 +36,8 @@ public class SettingsToFile {
     private String themeClassName;
     private boolean alwaysOnTop;
     private String path;
+    private boolean prefetchParameters;
+    private boolean rememberGlobalParameters;
+    private boolean interceptWindowsOnFocusChange;
+    private boolean deliverToTmux;
 }
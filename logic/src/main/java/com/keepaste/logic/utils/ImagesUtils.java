@@ -26,7 +26,6 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
@@ -55,27 +54,13 @@ public final class ImagesUtils {
     private ImagesUtils() { }
 
     /**
-     * Will return a generated or known icon to be used on the tree for a Keep based on the command text.
-     *
-     * @param keepExecutable the Keep's first word on its phrase
-     * @return a generated or known icon to be used on the tree for a Keep based on the command text.
-     */
-    public static ImageIcon getImageIconAndGenerateIfNotPresent(String keepExecutable) {
-        Color color = getCommandColor(keepExecutable);
-        if (color != null) {
-            return getImageIcon(keepExecutable, color);
-        } else {
-            return getDefaultKeepNodeIcon();
-        }
-    }
-
-    /**
-     * Will return the default icon to be used for a Keep on the tree.
+     * Will return the default icon to be used for a Keep on the tree, drawn in memory for the current theme.
      *
      * @return the default icon to be used for a Keep on the tree.
      */
     public static ImageIcon getDefaultKeepNodeIcon() {
-        return getImageIcon(KEEPASTE, new Color(DEFAULT_COLOR_VAL, DEFAULT_COLOR_VAL, DEFAULT_COLOR_VAL));
+        return new ImageIcon(renderIcon(KEEPASTE, new Color(DEFAULT_COLOR_VAL, DEFAULT_COLOR_VAL, DEFAULT_COLOR_VAL),
+                Application.getContext().getModelSettings().getTheme().getName()));
     }
 
     /**
@@ -112,23 +97,16 @@ public final class ImagesUtils {
         return null;
     }
 
-    private static ImageIcon getImageIcon(String keepExecutable, Color color) {
-        String commandWithThemeName = keepExecutable.concat("-").concat(Application.getContext().getModelSettings().getTheme().getName());
-        // this is a known keep, setting specific icon for it
-        File file = new File(getCommandsIconsPath(commandWithThemeName));
-        if (!file.exists()) {
-            generateIcon(commandWithThemeName, color);
-        }
-        return new ImageIcon(file.getAbsolutePath());
-    }
-
     /**
-     * Generates a Keep's icon.
+     * Draws a Keep's icon, a gradient circle with the executable's first letter, without touching the file system.
+     * Safe to call from any thread, as each call draws on its own image.
      *
-     * @param commandExecutable The executable to create icon for
-     * @param color             the color of the icon
+     * @param commandExecutable the executable to draw the icon for
+     * @param color             the color of the icon, a random one if {@code null}
+     * @param themeName         the name of the theme the icon is drawn for
+     * @return the drawn icon
      */
-    public static void generateIcon(@NonNull final String commandExecutable, Color color) {
+    public static BufferedImage renderIcon(@NonNull final String commandExecutable, Color color, @NonNull final String themeName) {
         int width = DEFAULT_ICON_WIDTH_HEIGHT;
         int height = DEFAULT_ICON_WIDTH_HEIGHT;
 
@@ -148,7 +126,7 @@ public final class ImagesUtils {
         }
 
         Color letterColor = Color.WHITE;
-        if (Application.getContext().getModelSettings().getTheme().getName().equals("FlatLaf macOS Dark")) {
+        if (themeName.equals("FlatLaf macOS Dark")) {
             letterColor = Color.BLACK;
         }
 
@@ -177,15 +155,7 @@ public final class ImagesUtils {
         g2d.drawString(letter, x, y);
 
         g2d.dispose();
-
-        // Save image as PNG
-        String imagePath = getCommandsIconsPath(commandExecutable);
-        try {
-            ImageIO.write(image, "png", new File(imagePath));
-            log.info("Image for image path [{}] was created", imagePath);
-        } catch (IOException e) {
-            log.error(String.format("Failed to write to image path [%s]", imagePath), e);
-        }
+        return image;
     }
 
     private static GradientPaint getGradientPaint(Color color, int width, int height) {
@@ -197,12 +167,24 @@ public final class ImagesUtils {
         return new GradientPaint(0, 0, lighterColor, width, height, color, true);
     }
 
-    private static String getCommandsIconsPath(String commandExecutable) {
-        FileSystemUtils.createDirectoryIfNotExists(FileSystemUtils.getKeepasteDirectory().concat("/commands_icons"));
-        return FileSystemUtils.getKeepasteDirectory().concat("/commands_icons/".concat(commandExecutable).concat(".png"));
+    /**
+     * Will return the path of the directory the generated Keeps icons are kept in.
+     *
+     * @return the path of the directory the generated Keeps icons are kept in
+     */
+    public static String getCommandsIconsDirectory() {
+        String directory = FileSystemUtils.getKeepasteDirectory().concat("/commands_icons");
+        FileSystemUtils.createDirectoryIfNotExists(directory);
+        return directory;
     }
 
-    private static Color getCommandColor(String command) {
+    /**
+     * Will return the known color of an executable's icon.
+     *
+     * @param command the executable
+     * @return the known color of the executable's icon, or {@code null} if the executable is not a known one
+     */
+    public static Color getCommandColor(String command) {
         Map<String, Color> knownCommandsColors = new HashMap<>();
         knownCommandsColors.put("aws", AWS_COLOR);
         knownCommandsColors.put("mvn", MVN_COLOR);
@@ -28,7 +28,7 @@ import java.util.List;
  * This class is a model for a Keep's parameters as shown on the {@code com.keepaste.gui.DialogKeep}.
  */
 public class KeepParametersTableModel extends AbstractTableModel {
-    private final String[] columns = {"Parameter name", "Parameter value", "Global"};
+    private final String[] columns = {"Parameter name", "Parameter value", "Global", "Cache TTL (sec)"};
     private final transient List<KeepParameter> editedParameters;
 
     /**
@@ -71,6 +71,9 @@ public class KeepParametersTableModel extends AbstractTableModel {
             case 2:
                 // isGlobal column
                 return editedParameters.get(rowIndex).isGlobal();
+            case 3:
+                // cache TTL column
+                return editedParameters.get(rowIndex).getCacheTtlSeconds();
             default:
                 return null;
         }
@@ -116,6 +119,10 @@ public class KeepParametersTableModel extends AbstractTableModel {
                 // isGlobal column
                 editedParameters.get(row).setGlobal((boolean) value);
                 break;
+            case 3:
+                // cache TTL column
+                editedParameters.get(row).setCacheTtlSeconds(Math.max(0, (int) value));
+                break;
             default:
                 // do nothing
         }
@@ -0,0 +1,71 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.views;
+
+import com.keepaste.gui.Gui;
+import com.keepaste.logic.Application;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * This View class binds the ways to abort the running Keeps - the 'Escape' key and clicking the executing keep label.
+ */
+@Log4j2
+public class ViewKeepExecution {
+    private static final String ABORT_KEEP_ACTION = "abortKeep";
+
+    /**
+     * Constructor.
+     *
+     * @param gui the {@code Gui}
+     */
+    public ViewKeepExecution(@NonNull final Gui gui) {
+        Action abortKeepAction = new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                abortRunningKeeps();
+            }
+        };
+        gui.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), ABORT_KEEP_ACTION);
+        gui.getRootPane().getActionMap().put(ABORT_KEEP_ACTION, abortKeepAction);
+
+        gui.labelBackground.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        gui.labelBackground.setToolTipText("Click or press 'Esc' to abort the running Keeps");
+        gui.labelBackground.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                abortRunningKeeps();
+            }
+        });
+    }
+
+    private static void abortRunningKeeps() {
+        if (Application.getContext().isKeepCurrentlyRunning()) {
+            log.debug("Aborting the running keeps on user request");
+            Application.getContext().getKeepExecutionManager().abortRunningKeeps();
+        }
+    }
+}
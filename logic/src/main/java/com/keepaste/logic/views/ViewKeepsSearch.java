@@ -0,0 +1,175 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.views;
+
+import com.formdev.flatlaf.FlatClientProperties;
+import com.keepaste.gui.Gui;
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.tree.FilteredTreeModel;
+import com.keepaste.logic.models.Keep;
+import lombok.NonNull;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.List;
+
+/**
+ * This View class manages the search field over the Keeps tree. While searching, the tree shows only the matching
+ * Keeps and their groups, and the best match is selected, so 'Enter' executes it unless another match was selected
+ * with the arrow keys.
+ */
+public class ViewKeepsSearch {
+    private static final String FOCUS_SEARCH_ACTION = "focusSearch";
+
+    private final Gui gui;
+    private final ViewTree viewTree;
+
+    /**
+     * Constructor.
+     *
+     * @param gui       the {@code Gui}
+     * @param viewTree  the {@code ViewTree} to filter while searching
+     */
+    public ViewKeepsSearch(@NonNull final Gui gui, @NonNull final ViewTree viewTree) {
+        this.gui = gui;
+        this.viewTree = viewTree;
+        gui.textSearch.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT, "Search Keeps");
+        gui.textSearch.putClientProperty(FlatClientProperties.TEXT_FIELD_SHOW_CLEAR_BUTTON, true);
+        gui.textSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        gui.textSearch.addActionListener(e -> executeSelected());
+
+        bindKeys();
+    }
+
+    private void bindKeys() {
+        // moving through the matches while typing
+        gui.textSearch.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "next");
+        gui.textSearch.getActionMap().put("next", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                moveSelection(1);
+            }
+        });
+        gui.textSearch.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "previous");
+        gui.textSearch.getActionMap().put("previous", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                moveSelection(-1);
+            }
+        });
+        // 'Escape' clears the search, and once cleared is left to abort the running Keeps
+        gui.textSearch.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "clear");
+        gui.textSearch.getActionMap().put("clear", new AbstractAction() {
+            @Override
+            public boolean isEnabled() {
+                return !gui.textSearch.getText().isEmpty();
+            }
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                clear();
+            }
+        });
+
+        gui.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_F, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()),
+                FOCUS_SEARCH_ACTION);
+        gui.getRootPane().getActionMap().put(FOCUS_SEARCH_ACTION, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                gui.textSearch.requestFocusInWindow();
+                gui.textSearch.selectAll();
+            }
+        });
+    }
+
+    private void search() {
+        FilteredTreeModel filteredTreeModel = viewTree.getFilteredTreeModel();
+        if (filteredTreeModel == null) {
+            // the tree is not built yet
+            return;
+        }
+        String query = gui.textSearch.getText();
+        filteredTreeModel.setFilter(query);
+        if (filteredTreeModel.isFiltered()) {
+            selectBestMatch(filteredTreeModel);
+        }
+    }
+
+    private void selectBestMatch(FilteredTreeModel filteredTreeModel) {
+        DefaultMutableTreeNode bestMatch = filteredTreeModel.getBestMatchingTreeNode();
+        if (bestMatch == null) {
+            gui.tree.clearSelection();
+            return;
+        }
+        select(bestMatch);
+    }
+
+    private void moveSelection(int delta) {
+        FilteredTreeModel filteredTreeModel = viewTree.getFilteredTreeModel();
+        if (filteredTreeModel == null || !filteredTreeModel.isFiltered() || filteredTreeModel.getMatchingTreeNodes().isEmpty()) {
+            return;
+        }
+        List<DefaultMutableTreeNode> matchingTreeNodes = filteredTreeModel.getMatchingTreeNodes();
+        int index = matchingTreeNodes.indexOf(gui.tree.getLastSelectedPathComponent());
+        select(matchingTreeNodes.get(Math.max(0, Math.min(matchingTreeNodes.size() - 1, index + delta))));
+    }
+
+    private void select(DefaultMutableTreeNode treeNode) {
+        TreePath path = new TreePath(treeNode.getPath());
+        gui.tree.setSelectionPath(path);
+        gui.tree.scrollPathToVisible(path);
+    }
+
+    private void executeSelected() {
+        Object selectedNode = gui.tree.getLastSelectedPathComponent();
+        if (gui.textSearch.getText().isBlank() || !(selectedNode instanceof DefaultMutableTreeNode)
+                || !(((DefaultMutableTreeNode) selectedNode).getUserObject() instanceof Keep)) {
+            return;
+        }
+        Keep keep = (Keep) ((DefaultMutableTreeNode) selectedNode).getUserObject();
+        clear();
+        Application.getContext().getKeepExecutionManager().executeKeepOnWindow(keep);
+    }
+
+    private void clear() {
+        gui.textSearch.setText("");
+        gui.tree.requestFocusInWindow();
+    }
+}
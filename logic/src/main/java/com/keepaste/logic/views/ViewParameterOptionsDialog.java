@@ -0,0 +1,328 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.views;
+
+import com.keepaste.logic.Application;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This View class manages a dialog to choose a parameter value from the output of its command.
+ * The values are added to the dialog while the command is still running, and can be filtered by typing.
+ * All methods but {@code showAndWait} may be called from any thread.
+ */
+@Log4j2
+public class ViewParameterOptionsDialog {
+    private static final int REFRESH_INTERVAL_IN_MS = 100;
+    private static final Dimension DIALOG_SIZE = new Dimension(420, 360);
+
+    private final String parameterName;
+    private final CompletableFuture<String> selectedValue = new CompletableFuture<>();
+
+    // guarded by 'this', written by the command output readers and read by the event dispatch thread
+    private final List<String> pendingValues = new ArrayList<>();
+    private List<String> completedValues;
+    private boolean isJsonArray;
+    private boolean isFirstLine = true;
+    private boolean isFailed;
+
+    // accessed on the event dispatch thread only
+    private final List<String> allValues = new ArrayList<>();
+    private final DefaultListModel<String> filteredValues = new DefaultListModel<>();
+    private JDialog dialog;
+    private JTextField textFilter;
+    private JList<String> listValues;
+    private JLabel labelStatus;
+    private Timer refreshTimer;
+    private boolean isCompleted;
+
+    /**
+     * Constructor.
+     *
+     * @param parameterName the name of the parameter to choose a value for
+     */
+    public ViewParameterOptionsDialog(@NonNull final String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    /**
+     * Will add a line printed by the command to the values to choose from.
+     *
+     * @param line the output line
+     */
+    public synchronized void addLine(@NonNull final String line) {
+        if (isFirstLine) {
+            isFirstLine = false;
+            // a json array printed line by line, its values are cleaned the same way they are once the command completes
+            isJsonArray = line.equals("[");
+        }
+        if (isJsonArray) {
+            if (line.equals("[") || line.equals("]")) {
+                return;
+            }
+            pendingValues.add(line.replace("\",", "").replace("\"", "").trim());
+        } else {
+            pendingValues.add(line);
+        }
+    }
+
+    /**
+     * Will replace the streamed values with the final values of the completed command.
+     *
+     * @param values the final values to choose from
+     */
+    public synchronized void complete(@NonNull final List<String> values) {
+        completedValues = new ArrayList<>(values);
+    }
+
+    /**
+     * Will close the dialog without a selected value as the command failed.
+     */
+    public synchronized void fail() {
+        isFailed = true;
+    }
+
+    /**
+     * Will return true if the dialog was closed as the command failed.
+     *
+     * @return true if the dialog was closed as the command failed
+     */
+    public synchronized boolean isFailed() {
+        return isFailed;
+    }
+
+    /**
+     * Will show the dialog and block until a value is chosen or the dialog is closed.
+     * Must not be called from the event dispatch thread.
+     *
+     * @return the chosen value, or null if no value was chosen
+     * @throws InterruptedException in case the waiting thread was interrupted
+     */
+    public String showAndWait() throws InterruptedException {
+        SwingUtilities.invokeLater(this::show);
+        try {
+            return selectedValue.get();
+        } catch (InterruptedException ex) {
+            SwingUtilities.invokeLater(() -> close(null));
+            throw ex;
+        } catch (ExecutionException ex) {
+            log.error("Failed to choose a parameter value", ex);
+            return null;
+        }
+    }
+
+    private void show() {
+        dialog = new JDialog(Application.getContext().getGui(),
+                String.format("Choose a value for %s", parameterName), true);
+        dialog.setAlwaysOnTop(true);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                close(null);
+            }
+        });
+
+        textFilter = new JTextField();
+        textFilter.setToolTipText("Type to filter the values");
+        textFilter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refilter();
+            }
+        });
+
+        listValues = new JList<>(filteredValues);
+        listValues.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        listValues.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    choose();
+                }
+            }
+        });
+
+        labelStatus = new JLabel();
+        JButton buttonOk = new JButton("OK");
+        buttonOk.addActionListener(e -> choose());
+        JButton buttonCancel = new JButton("Cancel");
+        buttonCancel.addActionListener(e -> close(null));
+        JPanel panelButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        panelButtons.add(buttonOk);
+        panelButtons.add(buttonCancel);
+        JPanel panelBottom = new JPanel(new BorderLayout());
+        panelBottom.add(labelStatus, BorderLayout.WEST);
+        panelBottom.add(panelButtons, BorderLayout.EAST);
+
+        JPanel panelContent = new JPanel(new BorderLayout(0, 6));
+        panelContent.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        panelContent.add(textFilter, BorderLayout.NORTH);
+        panelContent.add(new JScrollPane(listValues), BorderLayout.CENTER);
+        panelContent.add(panelBottom, BorderLayout.SOUTH);
+        dialog.setContentPane(panelContent);
+        dialog.getRootPane().setDefaultButton(buttonOk);
+        bindKeys();
+
+        // pulling the values in batches, so a fast command will not flood the event dispatch thread
+        refreshTimer = new Timer(REFRESH_INTERVAL_IN_MS, e -> refresh());
+        refreshTimer.start();
+        refresh();
+
+        dialog.setSize(DIALOG_SIZE);
+        dialog.setLocationRelativeTo(Application.getContext().getGui());
+        dialog.setVisible(true);
+    }
+
+    private void bindKeys() {
+        InputMap inputMap = dialog.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = dialog.getRootPane().getActionMap();
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancel");
+        actionMap.put("cancel", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                close(null);
+            }
+        });
+
+        // moving through the values while typing the filter
+        textFilter.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "next");
+        textFilter.getActionMap().put("next", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                moveSelection(1);
+            }
+        });
+        textFilter.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "previous");
+        textFilter.getActionMap().put("previous", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                moveSelection(-1);
+            }
+        });
+    }
+
+    private void moveSelection(int delta) {
+        if (!filteredValues.isEmpty()) {
+            int index = Math.max(0, Math.min(filteredValues.size() - 1, listValues.getSelectedIndex() + delta));
+            listValues.setSelectedIndex(index);
+            listValues.ensureIndexIsVisible(index);
+        }
+    }
+
+    private void refresh() {
+        List<String> newValues;
+        List<String> finalValues;
+        boolean failed;
+        synchronized (this) {
+            newValues = new ArrayList<>(pendingValues);
+            pendingValues.clear();
+            finalValues = completedValues;
+            failed = isFailed;
+        }
+
+        if (failed) {
+            close(null);
+            return;
+        }
+        if (finalValues != null && !isCompleted) {
+            isCompleted = true;
+            allValues.clear();
+            allValues.addAll(finalValues);
+            refilter();
+        } else if (!isCompleted) {
+            String filter = textFilter.getText().toLowerCase();
+            for (String value : newValues) {
+                allValues.add(value);
+                if (value.toLowerCase().contains(filter)) {
+                    filteredValues.addElement(value);
+                }
+            }
+        }
+        updateStatus();
+    }
+
+    private void refilter() {
+        String selected = listValues.getSelectedValue();
+        String filter = textFilter.getText().toLowerCase();
+        List<String> matchingValues = new ArrayList<>();
+        for (String value : allValues) {
+            if (value.toLowerCase().contains(filter)) {
+                matchingValues.add(value);
+            }
+        }
+        filteredValues.clear();
+        filteredValues.addAll(matchingValues);
+        if (selected != null && matchingValues.contains(selected)) {
+            listValues.setSelectedValue(selected, true);
+        }
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        String count = filteredValues.size() == allValues.size()
+                ? String.format("%d values", allValues.size())
+                : String.format("%d of %d values", filteredValues.size(), allValues.size());
+        labelStatus.setText(isCompleted ? count : String.format("Loading... %s", count));
+    }
+
+    private void choose() {
+        String value = listValues.getSelectedValue();
+        if (value == null && !filteredValues.isEmpty()) {
+            // choosing the best match of the typed filter
+            value = filteredValues.firstElement();
+        }
+        if (value != null) {
+            close(value);
+        }
+    }
+
+    private void close(String value) {
+        if (refreshTimer != null) {
+            refreshTimer.stop();
+        }
+        if (dialog != null) {
+            dialog.dispose();
+        }
+        selectedValue.complete(value);
+    }
+}
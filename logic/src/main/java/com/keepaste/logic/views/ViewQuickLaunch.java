@@ -0,0 +1,187 @@
+/**
+ * Keepaste - The keep and paste program (http://www.keepaste.com)
+ * Copyright (C) 2023 Tamir Krispis
+ * <p>
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.keepaste.logic.views;
+
+import com.keepaste.gui.Gui;
+import com.keepaste.logic.Application;
+import com.keepaste.logic.managers.tree.KeepIconCache;
+import com.keepaste.logic.models.Keep;
+import com.keepaste.logic.utils.GuiUtils;
+import lombok.NonNull;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+/**
+ * This View class manages the quick launch popup, listing the most frecent Keeps - the ones run most often and most
+ * recently - so they are run without navigating the tree.
+ * It is opened with 'Ctrl/Cmd+K', a Keep is run with 'Enter' or with its number key and 'Escape' closes it.
+ */
+public class ViewQuickLaunch {
+    public static final int MAX_QUICK_LAUNCH_KEEPS = 20;
+
+    private static final int NUMBERED_KEEPS = 10;
+    private static final String QUICK_LAUNCH_ACTION = "quickLaunch";
+    private static final Dimension POPUP_SIZE = new Dimension(420, 420);
+
+    private final Gui gui;
+    private JDialog dialog;
+    private JList<Keep> listKeeps;
+
+    /**
+     * Constructor.
+     *
+     * @param gui the {@code Gui}
+     */
+    public ViewQuickLaunch(@NonNull final Gui gui) {
+        this.gui = gui;
+        gui.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_K, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()),
+                QUICK_LAUNCH_ACTION);
+        gui.getRootPane().getActionMap().put(QUICK_LAUNCH_ACTION, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                show();
+            }
+        });
+    }
+
+    /**
+     * Will show the quick launch popup, unless no Keep was run yet.
+     */
+    public void show() {
+        List<Keep> topKeeps = Application.getContext().getKeepsManager().getKeepUsageStatistics()
+                .getTopKeeps(MAX_QUICK_LAUNCH_KEEPS);
+        if (topKeeps.isEmpty()) {
+            GuiUtils.showTargetWindowLabelMessage("No Keeps were run yet...", 1);
+            return;
+        }
+        if (dialog != null) {
+            dialog.dispose();
+        }
+
+        DefaultListModel<Keep> keeps = new DefaultListModel<>();
+        keeps.addAll(topKeeps);
+        listKeeps = new JList<>(keeps);
+        listKeeps.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        listKeeps.setCellRenderer(new QuickLaunchCellRenderer());
+        listKeeps.setSelectedIndex(0);
+        listKeeps.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    execute(listKeeps.getSelectedValue());
+                }
+            }
+        });
+
+        dialog = new JDialog(gui, "Quick launch", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                // the popup is gone once the user moves on to another window
+                close();
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(listKeeps);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(6, 6, 6, 6));
+        dialog.setContentPane(scrollPane);
+        bindKeys();
+
+        dialog.setSize(POPUP_SIZE);
+        dialog.setLocationRelativeTo(gui);
+        dialog.setVisible(true);
+        listKeeps.requestFocusInWindow();
+    }
+
+    private void bindKeys() {
+        InputMap inputMap = dialog.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = dialog.getRootPane().getActionMap();
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "close");
+        actionMap.put("close", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                close();
+            }
+        });
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "execute");
+        actionMap.put("execute", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                execute(listKeeps.getSelectedValue());
+            }
+        });
+        // '1' to '9' run the first Keeps and '0' runs the tenth, both from the top row and the numeric keypad
+        for (int i = 0; i < Math.min(NUMBERED_KEEPS, listKeeps.getModel().getSize()); i++) {
+            int digit = (i + 1) % NUMBERED_KEEPS;
+            int index = i;
+            String actionName = "execute".concat(String.valueOf(digit));
+            inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_0 + digit, 0), actionName);
+            inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_NUMPAD0 + digit, 0), actionName);
+            actionMap.put(actionName, new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    execute(listKeeps.getModel().getElementAt(index));
+                }
+            });
+        }
+    }
+
+    private void execute(Keep keep) {
+        close();
+        if (keep != null) {
+            Application.getContext().getKeepExecutionManager().executeKeepOnWindow(keep);
+        }
+    }
+
+    private void close() {
+        if (dialog != null) {
+            JDialog dialogToClose = dialog;
+            dialog = null;
+            dialogToClose.dispose();
+        }
+    }
+
+    /**
+     * This class renders a Keep on the quick launch popup, along with its number key.
+     */
+    private static final class QuickLaunchCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            Keep keep = (Keep) value;
+            String title = index < NUMBERED_KEEPS
+                    ? String.format("%d   %s", (index + 1) % NUMBERED_KEEPS, keep.getTitle())
+                    : String.format("     %s", keep.getTitle());
+            super.getListCellRendererComponent(list, title, index, isSelected, cellHasFocus);
+            Icon icon = keep.getExecutable() == null ? null : KeepIconCache.getIcon(keep.getExecutable());
+            // until the icon is ready, showing the same icon the tree shows meanwhile
+            setIcon(icon == null ? UIManager.getIcon("Tree.leafIcon") : icon);
+            setToolTipText(keep.getPhrase());
+            return this;
+        }
+    }
+}
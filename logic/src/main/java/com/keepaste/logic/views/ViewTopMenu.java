@@ -28,17 +28,28 @@ import com.keepaste.logic.actionlisteners.topmenu.AutoEnterActionListener;
 import com.keepaste.logic.actionlisteners.topmenu.FocusOnTargetWindowActionListener;
 import com.keepaste.logic.actionlisteners.topmenu.CopyToClipboardActionListener;
 import com.keepaste.logic.actionlisteners.topmenu.PathMenuItemActionListener;
+import com.keepaste.logic.actionlisteners.topmenu.DeliverToTmuxActionListener;
+import com.keepaste.logic.actionlisteners.topmenu.InterceptWindowsOnFocusChangeActionListener;
+import com.keepaste.logic.actionlisteners.topmenu.PrefetchParametersActionListener;
+import com.keepaste.logic.actionlisteners.topmenu.RememberGlobalParametersActionListener;
 import com.keepaste.logic.actionlisteners.topmenu.ThemesMenuItemActionListener;
+import com.keepaste.logic.models.Model;
+import com.keepaste.logic.models.ModelSettings;
 import com.keepaste.logic.utils.OperatingSystemUtils;
 import lombok.Getter;
 import lombok.NonNull;
 
 import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
- * This View class manages the menu items.
+ * This View class manages the menu items, the settings menu items are updated once the settings are changed, like by
+ * the settings file being written by anyone else.
  */
-public class ViewTopMenu {
+public class ViewTopMenu implements View {
 
     private final JMenu menuItemMain;
     private final JMenu menuItemAbout;
@@ -46,6 +57,8 @@ public class ViewTopMenu {
 
     @Getter
     JCheckBoxMenuItem lockingMenuItem;
+    // the menu items showing the settings, by whether each should be selected for the current settings
+    private final Map<AbstractButton, Predicate<ModelSettings>> settingsMenuItems = new LinkedHashMap<>();
 
     public ViewTopMenu(@NonNull final JMenu menuItemMain,
                        @NonNull final JMenu menuItemAbout,
@@ -55,13 +68,19 @@ public class ViewTopMenu {
         this.menuItemHeart = menuItemHeart;
     }
 
+    @Override
+    public void updateObserver(Model model) {
+        EventQueue.invokeLater(() -> settingsMenuItems.forEach((menuItem, isSelected) ->
+                menuItem.setSelected(isSelected.test((ModelSettings) model))));
+    }
+
     public void initUpperMenuBar() {
         if (OperatingSystemUtils.getOperatingSystemType() == OperatingSystemUtils.OperatingSystemType.WINDOWS) {
             lockingMenuItem = new JCheckBoxMenuItem("Toggle Locking", false);
             menuItemMain.add(lockingMenuItem);
         }
 
-        JCheckBoxMenuItem alwaysOnTopCheckBoxMenuItem = new JCheckBoxMenuItem("Always on top", Application.getContext().getModelSettings().isAlwaysOnTop());
+        JCheckBoxMenuItem alwaysOnTopCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("Always on top", Application.getContext().getModelSettings().isAlwaysOnTop()), ModelSettings::isAlwaysOnTop);
         AlwaysOnTopActionListener alwaysOnTopActionListener = new AlwaysOnTopActionListener();
         alwaysOnTopCheckBoxMenuItem.addActionListener(alwaysOnTopActionListener);
         menuItemMain.add(alwaysOnTopCheckBoxMenuItem);
@@ -80,6 +99,28 @@ public class ViewTopMenu {
             settingsMenu.add(pathMenuItem);
         }
 
+        JCheckBoxMenuItem prefetchParametersCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("Prefetch parameters", Application.getContext().getModelSettings().isPrefetchParameters()), ModelSettings::isPrefetchParameters);
+        prefetchParametersCheckBoxMenuItem.setToolTipText("Run the parameter commands of a selected Keep before it is executed");
+        prefetchParametersCheckBoxMenuItem.addActionListener(new PrefetchParametersActionListener());
+        settingsMenu.add(prefetchParametersCheckBoxMenuItem);
+
+        JCheckBoxMenuItem rememberGlobalParametersCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("Remember global parameters", Application.getContext().getModelSettings().isRememberGlobalParameters()), ModelSettings::isRememberGlobalParameters);
+        rememberGlobalParametersCheckBoxMenuItem.setToolTipText("Keep the values of global parameters after keepaste is closed");
+        rememberGlobalParametersCheckBoxMenuItem.addActionListener(new RememberGlobalParametersActionListener());
+        settingsMenu.add(rememberGlobalParametersCheckBoxMenuItem);
+
+        JCheckBoxMenuItem interceptWindowsOnFocusChangeCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("Track target window on focus change only", Application.getContext().getModelSettings().isInterceptWindowsOnFocusChange()), ModelSettings::isInterceptWindowsOnFocusChange);
+        interceptWindowsOnFocusChangeCheckBoxMenuItem.setToolTipText("Sample the target window only when keepaste is entered or left, instead of constantly. A window switched from to keepaste with the keyboard may not be tracked");
+        interceptWindowsOnFocusChangeCheckBoxMenuItem.addActionListener(new InterceptWindowsOnFocusChangeActionListener());
+        settingsMenu.add(interceptWindowsOnFocusChangeCheckBoxMenuItem);
+
+        if (OperatingSystemUtils.getOperatingSystemType() != OperatingSystemUtils.OperatingSystemType.WINDOWS) {
+            JCheckBoxMenuItem deliverToTmuxCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("Deliver to tmux", Application.getContext().getModelSettings().isDeliverToTmux()), ModelSettings::isDeliverToTmux);
+            deliverToTmuxCheckBoxMenuItem.setToolTipText("Paste Keeps straight into tmux, when the target window is a single terminal running a tmux client");
+            deliverToTmuxCheckBoxMenuItem.addActionListener(new DeliverToTmuxActionListener());
+            settingsMenu.add(deliverToTmuxCheckBoxMenuItem);
+        }
+
         menuItemMain.add(settingsMenu);
         menuItemMain.add(new JSeparator());
 
@@ -91,12 +132,12 @@ public class ViewTopMenu {
         menuItemHeart.addMouseListener(new DialogHeartActionListener());
     }
 
-    private static JMenu getFlowMenuItem() {
+    private JMenu getFlowMenuItem() {
         JMenu flowMenuItem = new JMenu("Flow");
 
-        JCheckBoxMenuItem copyToClipboardCheckBoxMenuItem = new JCheckBoxMenuItem("1. Copy keep to clipboard", Application.getContext().getModelSettings().isCopyToClipboard());
-        JCheckBoxMenuItem focusOnTargetWindowCheckBoxMenuItem = new JCheckBoxMenuItem("2. Focus on target window and paste", Application.getContext().getModelSettings().isFocusOnWindowAndPaste());
-        JCheckBoxMenuItem autoEnterCheckBoxMenuItem = new JCheckBoxMenuItem("3. Press 'Enter'", Application.getContext().getModelSettings().isPressEnterAfterPaste());
+        JCheckBoxMenuItem copyToClipboardCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("1. Copy keep to clipboard", Application.getContext().getModelSettings().isCopyToClipboard()), ModelSettings::isCopyToClipboard);
+        JCheckBoxMenuItem focusOnTargetWindowCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("2. Focus on target window and paste", Application.getContext().getModelSettings().isFocusOnWindowAndPaste()), ModelSettings::isFocusOnWindowAndPaste);
+        JCheckBoxMenuItem autoEnterCheckBoxMenuItem = bindToSettings(new JCheckBoxMenuItem("3. Press 'Enter'", Application.getContext().getModelSettings().isPressEnterAfterPaste()), ModelSettings::isPressEnterAfterPaste);
 
 
         CopyToClipboardActionListener copyToClipboardActionListener = new CopyToClipboardActionListener(autoEnterCheckBoxMenuItem, focusOnTargetWindowCheckBoxMenuItem);
@@ -120,18 +161,18 @@ public class ViewTopMenu {
         return pathMenuItem;
     }
 
-    private static JMenu getThemesMenuItem() {
+    private JMenu getThemesMenuItem() {
         JMenu themesMenuItem = new JMenu("Themes");
         ButtonGroup themesRadioButtonGroup = new ButtonGroup();
         ThemesMenuItemActionListener themesMenuItemActionListener = new ThemesMenuItemActionListener();
-        JRadioButtonMenuItem darkModeRadioMenuItem = new JRadioButtonMenuItem("Dark");
+        JRadioButtonMenuItem darkModeRadioMenuItem = bindToSettings(new JRadioButtonMenuItem("Dark"), ViewTopMenu::isDarkTheme);
         darkModeRadioMenuItem.addActionListener(themesMenuItemActionListener);
-        JRadioButtonMenuItem lightModeRadioMenuItem = new JRadioButtonMenuItem("Light");
+        JRadioButtonMenuItem lightModeRadioMenuItem = bindToSettings(new JRadioButtonMenuItem("Light"), settings -> !isDarkTheme(settings));
         lightModeRadioMenuItem.addActionListener(themesMenuItemActionListener);
         themesRadioButtonGroup.add(darkModeRadioMenuItem);
         themesRadioButtonGroup.add(lightModeRadioMenuItem);
 
-        if (Application.getContext().getModelSettings().getTheme().getName().equals(FlatMacDarkLaf.NAME)) {
+        if (isDarkTheme(Application.getContext().getModelSettings())) {
             darkModeRadioMenuItem.setSelected(true);
         } else {
             lightModeRadioMenuItem.setSelected(true);
@@ -142,4 +183,12 @@ public class ViewTopMenu {
         return themesMenuItem;
     }
 
+    private <T extends AbstractButton> T bindToSettings(T menuItem, Predicate<ModelSettings> isSelected) {
+        settingsMenuItems.put(menuItem, isSelected);
+        return menuItem;
+    }
+
+    private static boolean isDarkTheme(ModelSettings modelSettings) {
+        return modelSettings.getTheme().getName().equals(FlatMacDarkLaf.NAME);
+    }
 }
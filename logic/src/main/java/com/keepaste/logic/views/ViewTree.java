@@ -20,19 +20,26 @@ package com.keepaste.logic.views;
 
 import com.keepaste.logic.Application;
 import com.keepaste.logic.actionlisteners.treenodes.*;
+import com.keepaste.logic.managers.KeepsJournal;
+import com.keepaste.logic.managers.KeepsManager;
 import com.keepaste.logic.managers.tree.CustomTreeCellRenderer;
 import com.keepaste.logic.managers.tree.DefaultTreeTransferHandler;
+import com.keepaste.logic.managers.tree.FilteredTreeModel;
+import com.keepaste.logic.managers.tree.KeepIconCache;
+import com.keepaste.logic.managers.tree.KeepsGroupTreeNode;
 import com.keepaste.logic.managers.tree.KeepsTreeModelListener;
+import com.keepaste.logic.managers.tree.LazyKeepsTreeLoader;
+import com.keepaste.logic.managers.tree.TreeReconciler;
 import com.keepaste.logic.models.*;
 import com.keepaste.logic.utils.ImagesUtils;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.StringUtils;
 import javax.swing.*;
 import javax.swing.tree.*;
 import java.awt.*;
 import java.awt.dnd.DnDConstants;
 import java.awt.event.*;
+import java.io.IOException;
 import java.util.Enumeration;
 
 /**
@@ -50,25 +57,102 @@ public class ViewTree implements View {
     private final DeleteTreeNodeActionListener deleteTreeNodeActionListener;
     private final ImportKeepsActionListener importKeepsActionListener;
     private final ExportKeepsActionListener exportKeepsActionListener;
+    private final LazyKeepsTreeLoader lazyKeepsTreeLoader;
+    private TreeReconciler treeReconciler;
+    @Getter
+    private FilteredTreeModel filteredTreeModel;
 
     public ViewTree() {
         deleteTreeNodeActionListener = new DeleteTreeNodeActionListener(this);
         importKeepsActionListener = new ImportKeepsActionListener(this);
         exportKeepsActionListener = new ExportKeepsActionListener(this);
         tree = Application.getContext().getGui().tree;
+        lazyKeepsTreeLoader = new LazyKeepsTreeLoader(tree);
+        tree.addTreeWillExpandListener(lazyKeepsTreeLoader);
+        tree.addTreeExpansionListener(lazyKeepsTreeLoader);
+        // the Keeps icons are resolved in the background, repainting once they are ready
+        KeepIconCache.setOnIconsReady(tree::repaint);
+        tree.addTreeSelectionListener(e -> {
+            DefaultMutableTreeNode selectedTreeNode = (DefaultMutableTreeNode) tree.getLastSelectedPathComponent();
+            Application.getContext().getKeepExecutionManager().getParameterPrefetcher().onSelectionChanged(
+                    selectedTreeNode != null && selectedTreeNode.getUserObject() instanceof Keep
+                            ? (Keep) selectedTreeNode.getUserObject()
+                            : null);
+        });
     }
 
     @Override
     public void updateObserver(Model model) {
         EventQueue.invokeLater(() -> {
-            initKeepsTree();
-            JPopupMenu treeKeepNodeContextMenu = initKeepNodeContextMenu();
-            JPopupMenu treeGroupNodeContextMenu = initKeepGroupNodeContextMenu();
+            if (rootTreeNode == null) {
+                // building the tree, its menus and listeners once, later changes are applied to the tree as they are made
+                initKeepsTree();
+                JPopupMenu treeKeepNodeContextMenu = initKeepNodeContextMenu();
+                JPopupMenu treeGroupNodeContextMenu = initKeepGroupNodeContextMenu();
+
+                addListenersToKeepsTree(treeKeepNodeContextMenu, treeGroupNodeContextMenu);
+            }
+        });
+    }
 
-            addListenersToKeepsTree(treeKeepNodeContextMenu, treeGroupNodeContextMenu);
+    /**
+     * Will update the tree with the keeps file, in case it was written by anyone else.
+     * The file is read on the calling thread, then only the nodes that were changed are updated on the tree, so the
+     * expanded groups and the selection are kept.
+     */
+    public void reloadKeepsIfChangedExternally() {
+        KeepsManager keepsManager = Application.getContext().getKeepsManager();
+        KeepsJournal.ExternalSnapshot externalSnapshot;
+        try {
+            externalSnapshot = keepsManager.readExternallyChangedKeeps();
+        } catch (IOException ex) {
+            log.error("Failed to read the Keeps file changed externally", ex);
+            return;
+        }
+        if (externalSnapshot == null) {
+            return;
+        }
+        EventQueue.invokeLater(() -> {
+            // counted on the event dispatch thread, so changes made since the file was read are counted as well
+            if (!isDroppingChangesConfirmed(keepsManager)) {
+                return;
+            }
+            treeReconciler.reconcile(keepsManager.getRootNode(), externalSnapshot.getRootNode(), rootTreeNode);
+            try {
+                keepsManager.replaceKeeps(externalSnapshot);
+            } catch (IOException ex) {
+                log.error("Failed to persist the Keeps file changed externally", ex);
+            }
         });
     }
 
+    private static boolean isDroppingChangesConfirmed(KeepsManager keepsManager) {
+        int uncompactedChangesCount;
+        try {
+            uncompactedChangesCount = keepsManager.getUncompactedChangesCount();
+        } catch (IOException ex) {
+            log.error("Failed to check for Keeps changes not written to the Keeps file, not reloading it", ex);
+            return false;
+        }
+        if (uncompactedChangesCount == 0) {
+            return true;
+        }
+        int result = JOptionPane.showConfirmDialog(Application.getContext().getGui(),
+                String.format("The Keeps file was changed outside of keepaste, while %d of your changes were not written to it yet.%n"
+                        + "Reload the Keeps from the file and discard your changes?%n"
+                        + "Choosing 'No' keeps your Keeps and writes them over the file.", uncompactedChangesCount),
+                "Keeps file changed", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (result == JOptionPane.YES_OPTION) {
+            return true;
+        }
+        try {
+            keepsManager.overwriteExternallyChangedKeeps();
+        } catch (IOException ex) {
+            log.error("Failed to write the Keeps over the Keeps file changed externally", ex);
+        }
+        return false;
+    }
+
     public DefaultMutableTreeNode getSelectedNode() {
         return treeNodeMouseListener != null ? treeNodeMouseListener.getSelectedNode() : null;
     }
@@ -112,12 +196,15 @@ public class ViewTree implements View {
         importKeepsMenuItem.addActionListener(importKeepsActionListener);
         JMenuItem exportKeepsMenuItem = new JMenuItem("Export Keeps...");
         exportKeepsMenuItem.addActionListener(exportKeepsActionListener);
+        JMenuItem mountLibraryMenuItem = new JMenuItem("Mount library...");
+        mountLibraryMenuItem.addActionListener(new MountLibraryActionListener(this));
         treeGroupNodeContextMenu.add(renameGroupMenuItem);
         treeGroupNodeContextMenu.add(addGroupMenuItem);
         treeGroupNodeContextMenu.add(addKeepInGroupMenuItem);
         treeGroupNodeContextMenu.add(new JSeparator());
         treeGroupNodeContextMenu.add(importKeepsMenuItem);
         treeGroupNodeContextMenu.add(exportKeepsMenuItem);
+        treeGroupNodeContextMenu.add(mountLibraryMenuItem);
         treeGroupNodeContextMenu.add(new JSeparator());
         treeGroupNodeContextMenu.add(deleteGroupMenuItem);
         return treeGroupNodeContextMenu;
@@ -129,17 +216,21 @@ public class ViewTree implements View {
 
     private void initKeepsTree() {
         KeepsGroup rootKeepNode = Application.getContext().getKeepsManager().getRootNode();
-        rootTreeNode = new DefaultMutableTreeNode(rootKeepNode);
+        // the tree nodes of a group's children are created once the group is expanded
+        KeepsGroupTreeNode rootGroupTreeNode = new KeepsGroupTreeNode(rootKeepNode);
+        rootTreeNode = rootGroupTreeNode;
 
-        TreeModel treeModel = new DefaultTreeModel(rootTreeNode);
+        DefaultTreeModel treeModel = new DefaultTreeModel(rootTreeNode);
         treeModel.addTreeModelListener(new KeepsTreeModelListener());
+        treeReconciler = new TreeReconciler(treeModel, Application.getContext().getKeepsManager()::isLibraryRootNode);
 
+        // the tree is shown through a filtering model, passing everything on while not searching
+        filteredTreeModel = new FilteredTreeModel(tree, treeModel, lazyKeepsTreeLoader::load,
+                filter -> Application.getContext().getKeepsManager().getKeepsSearchIndex().search(filter, FilteredTreeModel.MAX_MATCHES));
         tree.setRootVisible(true);
-        tree.setModel(treeModel);
-
-        for (KeepNode childNode : rootKeepNode.getKeepsNodes()) {
-            addKeepToTree(childNode, rootTreeNode, false);
-        }
+        tree.setModel(filteredTreeModel);
+        lazyKeepsTreeLoader.reset();
+        lazyKeepsTreeLoader.load(rootGroupTreeNode);
 
         ToolTipManager.sharedInstance().registerComponent(tree);
         ToolTipManager.sharedInstance().setInitialDelay(TOOLTIP_SHOW_DELAY_IN_MS);
@@ -176,65 +267,108 @@ public class ViewTree implements View {
     }
 
     public void resetSelectedNode() {
-        DefaultTreeModel model = (DefaultTreeModel)getTree().getModel();
-        model.nodeChanged(getSelectedNode());
+        getTreeModel().nodeChanged(getSelectedNode());
     }
 
     public void addKeepToTree(KeepNode keepNode) {
-        addKeepToTree(keepNode, true, getSelectedNode(), true);
+        addKeepToTree(keepNode, getSelectedNode(), true);
     }
 
     public void addKeepToTree(KeepNode keepNode, DefaultMutableTreeNode parentTreeNode) {
-        addKeepToTree(keepNode, true, parentTreeNode, true);
-    }
-
-    public void addKeepToTree(KeepNode keepNode, DefaultMutableTreeNode parentTreeNode, boolean save) {
-        addKeepToTree(keepNode, true, parentTreeNode, save);
+        addKeepToTree(keepNode, parentTreeNode, true);
     }
 
-    private void addKeepToTree(KeepNode newKeep, boolean initialKeep, DefaultMutableTreeNode parentTreeNode, boolean save) {
-        DefaultTreeModel treeModel = (DefaultTreeModel) getTree().getModel();
-        DefaultMutableTreeNode newKeepTreeNode = new DefaultMutableTreeNode(newKeep);
-        treeModel.insertNodeInto(newKeepTreeNode, parentTreeNode, getInsertIndex(newKeep, parentTreeNode));
-        if (save && initialKeep) { // as the newKeep already holds all the child Keeps, we add it only once when the initialKeep is true
-            ((KeepsGroup) parentTreeNode.getUserObject()).getKeepsNodes().add(newKeep);
+    public void addKeepToTree(KeepNode newKeep, DefaultMutableTreeNode parentTreeNode, boolean save) {
+        if (save && !isChangeAllowed((KeepNode) parentTreeNode.getUserObject())) {
+            return;
         }
-
-        if (newKeep instanceof KeepsGroup) {
-            for (KeepNode childNode : ((KeepsGroup) newKeep).getKeepsNodes()) {
-                addKeepToTree(childNode, false, newKeepTreeNode, save);
+        DefaultTreeModel treeModel = getTreeModel();
+        if (parentTreeNode instanceof KeepsGroupTreeNode && !((KeepsGroupTreeNode) parentTreeNode).isLoaded()) {
+            // the tree nodes of the group are not created yet, they are created along with the new one once it is expanded
+            if (save) {
+                Application.getContext().getKeepsManager().addKeep((KeepsGroup) parentTreeNode.getUserObject(), newKeep);
             }
+            treeModel.nodeStructureChanged(parentTreeNode);
+            log.debug("TreeNodes - Added Keep to a collapsed group, Keep = [{}]", newKeep);
+            return;
         }
 
-        // this is to identify when we finished the recursion, then save what was done
-        if (initialKeep) {
-            Application.getContext().getKeepsManager().saveKeeps((KeepsGroup) getRootTreeNode().getUserObject());
-            log.debug("TreeNodes - Added Keep to the tree, Keep = [{}]", newKeep);
+        // a group holds all its child Keeps already, their tree nodes are created once it is expanded
+        DefaultMutableTreeNode newKeepTreeNode = KeepsGroupTreeNode.createTreeNode(newKeep);
+        treeModel.insertNodeInto(newKeepTreeNode, parentTreeNode, KeepsGroupTreeNode.getInsertIndex(parentTreeNode, newKeep));
+        if (save) {
+            Application.getContext().getKeepsManager().addKeep((KeepsGroup) parentTreeNode.getUserObject(), newKeep);
         }
+        log.debug("TreeNodes - Added Keep to the tree, Keep = [{}]", newKeep);
     }
 
     public void removeKeepFromTree(DefaultMutableTreeNode treeNodeToRemove) {
         KeepNode keepNodeToRemove = (KeepNode)treeNodeToRemove.getUserObject();
-        ((KeepsGroup)((DefaultMutableTreeNode)treeNodeToRemove.getParent()).getUserObject()).getKeepsNodes().remove(keepNodeToRemove);
-        Application.getContext().getKeepsManager().saveKeeps((KeepsGroup)getRootTreeNode().getUserObject());
-        DefaultTreeModel treeModel = (DefaultTreeModel)getTree().getModel();
+        if (!isRemovalAllowed(keepNodeToRemove)) {
+            return;
+        }
+        Application.getContext().getKeepsManager().removeKeep(
+                (KeepsGroup)((DefaultMutableTreeNode)treeNodeToRemove.getParent()).getUserObject(), keepNodeToRemove);
+        DefaultTreeModel treeModel = getTreeModel();
         treeModel.removeNodeFromParent(treeNodeToRemove);
         log.debug("TreeNodes - Deleted a node from the tree, deleted node [{}]", treeNodeToRemove);
     }
 
     public void removeSelectedKeepFromTree() {
-        DefaultTreeModel treeModel = (DefaultTreeModel)getTree().getModel();
-        treeModel.removeNodeFromParent(getSelectedNode());
         KeepNode nodeToRemove = (KeepNode)getSelectedNode().getUserObject();
-        ((KeepsGroup)getParentOfSelectedNode().getUserObject()).getKeepsNodes().remove(nodeToRemove);
-        Application.getContext().getKeepsManager().saveKeeps((KeepsGroup)getRootTreeNode().getUserObject());
+        if (!isRemovalAllowed(nodeToRemove)) {
+            return;
+        }
+        DefaultTreeModel treeModel = getTreeModel();
+        treeModel.removeNodeFromParent(getSelectedNode());
+        Application.getContext().getKeepsManager().removeKeep((KeepsGroup)getParentOfSelectedNode().getUserObject(), nodeToRemove);
         log.debug("TreeNodes - Deleted a node from the tree, deleted node [{}]", nodeToRemove);
     }
 
+    public void moveKeepInTree(DefaultMutableTreeNode treeNodeToMove, DefaultMutableTreeNode newParentTreeNode) {
+        KeepNode keepNodeToMove = (KeepNode)treeNodeToMove.getUserObject();
+        if (Application.getContext().getKeepsManager().isLibraryRootNode(keepNodeToMove)) {
+            JOptionPane.showMessageDialog(Application.getContext().getGui(),
+                    "A mounted library cannot be moved", "Mounted library", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (!isChangeAllowed(keepNodeToMove) || !isChangeAllowed((KeepNode) newParentTreeNode.getUserObject())) {
+            return;
+        }
+        Application.getContext().getKeepsManager().moveKeep(
+                (KeepsGroup)((DefaultMutableTreeNode)treeNodeToMove.getParent()).getUserObject(),
+                keepNodeToMove,
+                (KeepsGroup)newParentTreeNode.getUserObject());
+        DefaultTreeModel treeModel = getTreeModel();
+        treeModel.removeNodeFromParent(treeNodeToMove);
+        // the moved node is already part of its new group, so it is only added to the tree
+        addKeepToTree(keepNodeToMove, newParentTreeNode, false);
+        log.debug("TreeNodes - Moved a node on the tree, moved node [{}]", keepNodeToMove);
+    }
+
+
+    private boolean isRemovalAllowed(KeepNode keepNode) {
+        // removing a mounted library unmounts it, even a read-only one
+        return Application.getContext().getKeepsManager().isLibraryRootNode(keepNode) || isChangeAllowed(keepNode);
+    }
+
+    private boolean isChangeAllowed(KeepNode keepNode) {
+        if (Application.getContext().getKeepsManager().isReadOnly(keepNode)) {
+            JOptionPane.showMessageDialog(Application.getContext().getGui(),
+                    String.format("\"%s\" is part of a read-only library and cannot be changed", keepNode.getTitle()),
+                    "Read-only library", JOptionPane.INFORMATION_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
+    private DefaultTreeModel getTreeModel() {
+        return FilteredTreeModel.getDefaultTreeModel(tree);
+    }
 
     private void resetAllNodes() {
-        DefaultTreeModel model = (DefaultTreeModel)tree.getModel();
-        DefaultMutableTreeNode rootNode = (DefaultMutableTreeNode) (tree.getModel()).getRoot();
+        DefaultTreeModel model = getTreeModel();
+        DefaultMutableTreeNode rootNode = (DefaultMutableTreeNode) model.getRoot();
         if (rootNode != null) {
             Enumeration<TreeNode> nodes = rootNode.depthFirstEnumeration();
             TreeNode current;
@@ -245,24 +379,6 @@ public class ViewTree implements View {
         }
     }
 
-    private int getInsertIndex(KeepNode childKeep, DefaultMutableTreeNode parentTreeNode) {
-        int i;
-        for (i = 0; i < parentTreeNode.getChildCount(); i++) {
-            DefaultMutableTreeNode childTreeNode = (DefaultMutableTreeNode) parentTreeNode.getChildAt(i);
-            KeepNode childKeepNode = (KeepNode) childTreeNode.getUserObject();
-            // if this is the first group, add it in index 0
-            if (childKeep instanceof KeepsGroup && childKeepNode instanceof Keep) {
-                return i;
-            }
-            if (((childKeep instanceof KeepsGroup && childKeepNode instanceof KeepsGroup)
-                    || (childKeep instanceof Keep && childKeepNode instanceof Keep)) &&
-                    StringUtils.compareIgnoreCase(childKeepNode.getTitle(), childKeep.getTitle()) > 0) {
-                return i;
-            }
-        }
-        return i;
-    }
-
     private void addListenersToKeepsTree(JPopupMenu treeKeepNodeContextMenu, JPopupMenu treeGroupNodeContextMenu) {
         treeNodeMouseListener = new TreeNodeMouseListener(
                 treeGroupNodeContextMenu,